@@ -0,0 +1,64 @@
+package com.example.usermicroservice.auth;
+
+import com.example.usermicroservice.benchmark.ApplicationState;
+import com.example.usermicroservice.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+
+import java.util.concurrent.TimeUnit;
+
+// login y register están dominados por bcrypt (security.password.bcrypt-cost);
+// check-session mide la resolución del usuario autenticado y la respuesta
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthBenchmark {
+
+    private AuthController authController;
+    private MockHttpServletRequest authenticatedRequest;
+
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState app) {
+        authController = app.bean(AuthController.class);
+        authenticatedRequest = new MockHttpServletRequest();
+        app.bean(AuthSessionManager.class).signIn(authenticatedRequest,
+                app.bean(UserService.class).getUserById(app.randomId()).orElseThrow());
+    }
+
+    @Benchmark
+    public ResponseEntity<?> login(ApplicationState app) {
+        AuthController.LoginRequest loginRequest = new AuthController.LoginRequest();
+        loginRequest.setEmail(app.randomEmail());
+        loginRequest.setPassword(ApplicationState.PASSWORD);
+        return authController.login(loginRequest, new MockHttpServletRequest());
+    }
+
+    @Benchmark
+    public ResponseEntity<?> register(ApplicationState app) {
+        AuthController.RegisterRequest registerRequest = new AuthController.RegisterRequest();
+        registerRequest.setName("Benchmark User");
+        registerRequest.setEmail(app.nextRegistrationEmail());
+        registerRequest.setPassword(ApplicationState.PASSWORD);
+        return authController.register(registerRequest, new BeanPropertyBindingResult(registerRequest, "registerRequest"));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> checkSession() {
+        return authController.checkSession(authenticatedRequest);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.usermicroservice.auth;
+
+import com.example.usermicroservice.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Coste de escribir y leer el atributo de sesión, como hace un almacén de sesiones persistente o replicado.
+// Compara la entidad User (formato anterior) con el principal compacto; los tamaños se imprimen al arrancar.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionSerializationBenchmark {
+
+    private User entity;
+    private AuthenticatedUser principal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        entity = new User();
+        entity.setId(123456L);
+        entity.setName("María José González");
+        entity.setEmail("maria.gonzalez@example.com");
+        entity.setPassword("$2a$10$abcdefghijklmnopqrstuu5p0uVPRg7ZnEI7Q2TJIvBqNqa2PYWv6");
+        entity.setRole("USER");
+        entity.setCreatedAt(LocalDateTime.of(2024, 3, 1, 9, 30));
+        entity.setDireccion("Av. Libertador Bernardo O'Higgins 1234, Santiago");
+        entity.setTelefono("+56912345678");
+        entity.setVersion(7L);
+        principal = AuthenticatedUser.from(entity);
+        System.out.printf("Tamaño serializado: entidad=%d bytes, principal=%d bytes%n",
+                serialize(entity).length, serialize(principal).length);
+    }
+
+    @Benchmark
+    public Object entityRoundTrip() throws Exception {
+        return deserialize(serialize(entity));
+    }
+
+    @Benchmark
+    public Object principalRoundTrip() throws Exception {
+        return deserialize(serialize(principal));
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
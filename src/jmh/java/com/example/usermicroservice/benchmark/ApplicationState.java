@@ -0,0 +1,101 @@
+package com.example.usermicroservice.benchmark;
+
+import com.example.usermicroservice.UsermicroserviceApplication;
+import com.example.usermicroservice.dto.ImportResult;
+import com.example.usermicroservice.service.PasswordHashingService;
+import com.example.usermicroservice.service.UserDataFormat;
+import com.example.usermicroservice.service.UserImportService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Arranca la aplicación completa contra H2 en memoria y la carga con datasetSize usuarios.
+// El resto de propiedades se puede ajustar con -D en la JVM del benchmark (p. ej. -Dsecurity.password.bcrypt-cost=4).
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    public static final String PASSWORD = "benchmark-password";
+
+    @Param({"1000", "100000"})
+    public int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private long[] ids;
+    private final AtomicLong registrations = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        // Argumentos de línea de comandos: prevalecen sobre application.properties
+        context = new SpringApplicationBuilder(UsermicroserviceApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate=WARN",
+                "--logging.level.org.springframework=WARN");
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    public String randomEmail() {
+        return email(ThreadLocalRandom.current().nextInt(datasetSize));
+    }
+
+    // Email nuevo en cada llamada, para registrar usuarios sin colisiones
+    public String nextRegistrationEmail() {
+        return "new" + registrations.incrementAndGet() + "@benchmark.local";
+    }
+
+    private void seed() throws IOException {
+        // Un único hash compartido: la importación guarda tal cual las contraseñas ya cifradas
+        String hash = bean(PasswordHashingService.class).hash(PASSWORD);
+        StringBuilder body = new StringBuilder(datasetSize * 120);
+        for (int i = 0; i < datasetSize; i++) {
+            body.append("{\"name\":\"User ").append(i)
+                    .append("\",\"email\":\"").append(email(i))
+                    .append("\",\"password\":\"").append(hash)
+                    .append("\",\"role\":\"").append(i % 100 == 0 ? "ADMIN" : "USER")
+                    .append("\"}\n");
+        }
+        ImportResult result = bean(UserImportService.class).importUsers(UserDataFormat.NDJSON,
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        if (result.imported() != datasetSize) {
+            throw new IllegalStateException("Carga de datos incompleta: " + result);
+        }
+        ids = bean(JdbcTemplate.class).queryForList("select id from users order by id", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static String email(int index) {
+        return "user" + index + "@benchmark.local";
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Latencia del índice de búsqueda (percentiles con -bm sample) sobre usuarios sintéticos con nombres
+// y apellidos repetidos como en datos reales. Las consultas mezclan prefijos cortos, nombre completo,
+// prefijo de email y errores de tipeo.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class UserSearchBenchmark {
+    private static final String[] SYLLABLES = {"ma", "ri", "an", "jo", "se", "lu", "is", "pe", "dro", "gon",
+            "za", "lez", "ro", "jas", "ca", "mi", "la", "to", "re", "sa", "ni", "co", "ba", "ez", "mar", "tin"};
+
+    @Param({"1000000", "5000000"})
+    public int users;
+
+    private UserSearchIndex searchIndex;
+    private String[] queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] firstNames = words(400, 2, 1);
+        String[] lastNames = words(50_000, 3, 2);
+        SplittableRandom random = new SplittableRandom(42);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.streamSnapshots()).thenAnswer(invocation -> LongStream.rangeClosed(1, users)
+                .mapToObj(id -> {
+                    String first = firstNames[(int) (id * 31 % firstNames.length)];
+                    String last = lastNames[(int) (id * 7919 % lastNames.length)];
+                    return new UserSnapshot(id, first + " " + last, first + "." + last + id + "@example.com", "USER", null);
+                }));
+        searchIndex = new UserSearchIndex(userRepository, mock(PlatformTransactionManager.class), true, 5000);
+        searchIndex.rebuild();
+
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String first = firstNames[random.nextInt(firstNames.length)];
+            String last = lastNames[random.nextInt(lastNames.length)];
+            queries[i] = switch (i % 4) {
+                case 0 -> first.substring(0, 2);                          // prefijo corto, muchos candidatos
+                case 1 -> first + " " + last.substring(0, 3);             // nombre y comienzo del apellido
+                case 2 -> first + "." + last.substring(0, 2);             // prefijo del email
+                default -> last.substring(0, last.length() - 1) + "x";    // apellido con un error de tipeo
+            };
+        }
+    }
+
+    private static String[] words(int count, int minSyllables, int extraSyllables) {
+        SplittableRandom random = new SplittableRandom(count);
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = minSyllables + random.nextInt(extraSyllables + 1);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    @Benchmark
+    public List<UserSearchIndex.Hit> search() {
+        return searchIndex.search(queries[ThreadLocalRandom.current().nextInt(queries.length)], UserSearchService.DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.benchmark.ApplicationState;
+import com.example.usermicroservice.dto.UserPage;
+import com.example.usermicroservice.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Los ids se eligen al azar en todo el conjunto: con datasetSize mayor que users.cache.maximum-size
+// getUserById mezcla aciertos y fallos de caché, como en producción
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class UserServiceBenchmark {
+
+    private UserService userService;
+    private long updates;
+
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState app) {
+        userService = app.bean(UserService.class);
+    }
+
+    @Benchmark
+    public Optional<User> getUserById(ApplicationState app) {
+        return userService.getUserById(app.randomId());
+    }
+
+    // Primera página del listado completo, con el tamaño máximo permitido
+    @Benchmark
+    public UserPage getUsersFirstPage() {
+        return userService.getUsersPage(null, UserService.MAX_PAGE_SIZE, null, null, null);
+    }
+
+    // Página a partir de una posición aleatoria, como al seguir el cursor
+    @Benchmark
+    public UserPage getUsersPageAtCursor(ApplicationState app) {
+        return userService.getUsersPage(PageCursor.encode(app.randomId()), UserService.MAX_PAGE_SIZE, null, null, null);
+    }
+
+    @Benchmark
+    public User updateUser(ApplicationState app) {
+        User current = userService.getUserById(app.randomId()).orElseThrow();
+        User changes = new User();
+        changes.setName("Updated " + updates++);
+        changes.setEmail(current.getEmail());
+        changes.setRole(current.getRole());
+        changes.setDireccion(current.getDireccion());
+        changes.setTelefono(current.getTelefono());
+        return userService.updateUser(current.getId(), changes);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.usermicroservice.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+// Genera usuarios sintéticos deterministas: el usuario i tiene id i + 1 y un email calculable sin consultar
+// la base de datos, de modo que el generador de carga puede elegir credenciales válidas al azar.
+// Se insertan con JDBC por lotes, sin pasar por JPA ni por los eventos de UserService.
+final class DatasetGenerator {
+    private static final int BATCH_SIZE = 1_000;
+    private static final int ROWS_PER_TRANSACTION = 50_000;
+
+    private static final String[] FIRST_NAMES = {"María", "José", "Juan", "Ana", "Luis", "Carmen", "Pedro", "Camila",
+            "Diego", "Valentina", "Javier", "Sofía", "Matías", "Isidora", "Felipe", "Catalina", "Tomás", "Fernanda",
+            "Benjamín", "Francisca", "Sebastián", "Antonia", "Vicente", "Martina", "Cristóbal", "Josefa", "Joaquín",
+            "Constanza", "Nicolás", "Daniela", "Ignacio", "Paula", "Gabriel", "Javiera", "Rodrigo", "Carolina"};
+    private static final String[] LAST_NAMES = {"González", "Muñoz", "Rojas", "Díaz", "Pérez", "Soto", "Contreras",
+            "Silva", "Martínez", "Sepúlveda", "Morales", "Rodríguez", "López", "Fuentes", "Hernández", "Torres",
+            "Araya", "Flores", "Espinoza", "Valenzuela", "Castillo", "Tapia", "Reyes", "Gutiérrez", "Castro", "Pizarro",
+            "Álvarez", "Vásquez", "Sánchez", "Fernández", "Ramírez", "Carrasco", "Gómez", "Cortés", "Herrera", "Núñez",
+            "Jara", "Vergara", "Rivera", "Figueroa", "Riquelme", "García", "Miranda", "Bravo", "Vera", "Molina"};
+    private static final String[] STREETS = {"Av. Providencia", "Av. Libertador Bernardo O'Higgins", "Los Leones",
+            "Irarrázaval", "Av. Apoquindo", "Gran Avenida", "Av. Matta", "Manuel Montt", "Av. Grecia", "Pedro de Valdivia"};
+    private static final String[] COMMUNES = {"Santiago", "Providencia", "Ñuñoa", "Las Condes", "Maipú", "La Florida",
+            "Puente Alto", "Valparaíso", "Viña del Mar", "Concepción"};
+    private static final String[] DOMAINS = {"gmail.com", "hotmail.com", "outlook.com", "yahoo.com", "empresa.cl"};
+    // Los emails van en minúsculas y sin tildes
+    private static final String[] FIRST_NAMES_ASCII = ascii(FIRST_NAMES);
+    private static final String[] LAST_NAMES_ASCII = ascii(LAST_NAMES);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long seed;
+
+    DatasetGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.seed = seed;
+    }
+
+    static String email(int index) {
+        return FIRST_NAMES_ASCII[index % FIRST_NAMES.length] + "." + LAST_NAMES_ASCII[(index / 7) % LAST_NAMES.length]
+                + index + "@" + DOMAINS[index % DOMAINS.length];
+    }
+
+    static long id(int index) {
+        return index + 1L;
+    }
+
+    // Inserta los usuarios que falten hasta completar users; devuelve cuántos insertó
+    int seed(int users, String passwordHash) {
+        Integer existing = jdbcTemplate.queryForObject("select count(*) from users", Integer.class);
+        int from = existing == null ? 0 : existing;
+        LocalDateTime now = LocalDateTime.now();
+        for (int start = from; start < users; start += ROWS_PER_TRANSACTION) {
+            int end = Math.min(users, start + ROWS_PER_TRANSACTION);
+            int first = start;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int batchStart = first; batchStart < end; batchStart += BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate("insert into users (id, name, email, password, role, created_at, direccion,"
+                                    + " telefono, version) values (?, ?, ?, ?, ?, ?, ?, ?, 0)",
+                            rows(batchStart, Math.min(end, batchStart + BATCH_SIZE), passwordHash, now));
+                }
+            });
+            if (end % 500_000 == 0 || end == users) {
+                System.out.printf("  %,d / %,d usuarios%n", end, users);
+            }
+        }
+        // La secuencia de Hibernate debe continuar después de los ids generados aquí
+        jdbcTemplate.execute("alter sequence users_seq restart with " + (users + 100));
+        return Math.max(0, users - from);
+    }
+
+    private List<Object[]> rows(int from, int to, String passwordHash, LocalDateTime now) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        for (int index = from; index < to; index++) {
+            SplittableRandom random = new SplittableRandom(seed * 31 + index);
+            String name = FIRST_NAMES[index % FIRST_NAMES.length] + " " + LAST_NAMES[(index / 7) % LAST_NAMES.length]
+                    + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String direccion = STREETS[random.nextInt(STREETS.length)] + " " + (100 + random.nextInt(9_900)) + ", "
+                    + COMMUNES[random.nextInt(COMMUNES.length)];
+            String telefono = "+569" + (10_000_000 + random.nextInt(90_000_000));
+            // Altas repartidas en los últimos cinco años; uno de cada cincuenta es ADMIN
+            LocalDateTime createdAt = now.minusMinutes(random.nextInt(5 * 365 * 24 * 60));
+            rows.add(new Object[]{id(index), name, email(index), passwordHash, index % 50 == 0 ? "ADMIN" : "USER",
+                    Timestamp.valueOf(createdAt), direccion, telefono});
+        }
+        return rows;
+    }
+
+    private static String[] ascii(String[] values) {
+        String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Normalizer.normalize(values[i], Normalizer.Form.NFD).replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+        }
+        return result;
+    }
+}
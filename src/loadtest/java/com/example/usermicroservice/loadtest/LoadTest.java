@@ -0,0 +1,316 @@
+package com.example.usermicroservice.loadtest;
+
+import com.example.usermicroservice.UsermicroserviceApplication;
+import com.example.usermicroservice.service.PageCursor;
+import com.example.usermicroservice.service.PasswordHashingService;
+import com.example.usermicroservice.service.RegisteredEmailIndex;
+import com.example.usermicroservice.service.UserSearchIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Prueba de carga local: arranca la aplicación contra H2, la carga con N usuarios sintéticos y la somete a
+// una mezcla de llamadas HTTP a ritmo fijo (modelo abierto: las peticiones salen a su hora aunque el servidor
+// vaya atrasado). La latencia se mide desde la hora programada, no desde el envío real, para no ocultar
+// las esperas cuando el servidor se satura (coordinated omission). Uso:
+//   mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--users=1000000 --rate=300 --duration=PT2M"
+public final class LoadTest {
+    private static final String PASSWORD = "LoadTest-2024!";
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final LoadTestOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<String, LongAdder> errorsByStatus = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong registrations = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private HttpClient client;
+    private URI baseUri;
+    private Operation[] schedule;
+    private List<String[]> sessions;
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(MAX_LATENCY_MICROS, 3));
+            totals.put(operation, new Histogram(MAX_LATENCY_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        // DevTools reinicia la aplicación en otro hilo si se detecta en el classpath; solo se desactiva como propiedad de sistema
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = start(options)) {
+            new LoadTest(options).run(context);
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext start(LoadTestOptions options) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + options.jdbcUrl(),
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=" + (options.persistentDatabase() ? "update" : "create-drop"),
+                // Toda la carga sale de 127.0.0.1: el limitador por IP la rechazaría casi entera
+                "--auth.rate-limit.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate=WARN",
+                "--logging.level.org.springframework=WARN"));
+        // Los argumentos que no son de la prueba (p. ej. --security.password.bcrypt-cost=8) prevalecen
+        args.addAll(options.applicationArgs());
+        return new SpringApplicationBuilder(UsermicroserviceApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private void run(ConfigurableApplicationContext context) throws Exception {
+        seed(context);
+        baseUri = URI.create("http://127.0.0.1:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+        schedule = schedule(options.mix());
+        sessions = openSessions();
+
+        System.out.printf("Calentamiento: %s a %d peticiones/s%n", options.warmup(), options.rate());
+        runPhase(options.warmup(), false);
+        System.out.printf("Medición: %s a %d peticiones/s, mezcla %s%n", options.duration(), options.rate(), options.mix());
+        long measuredNanos = runPhase(options.duration(), true);
+        report(measuredNanos);
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        long start = System.nanoTime();
+        String hash = context.getBean(PasswordHashingService.class).hash(PASSWORD);
+        DatasetGenerator generator = new DatasetGenerator(context.getBean(JdbcTemplate.class),
+                context.getBean(PlatformTransactionManager.class), options.seed());
+        System.out.printf("Cargando %,d usuarios en %s%n", options.users(), options.jdbcUrl());
+        int inserted = generator.seed(options.users(), hash);
+        // Los índices en memoria se construyeron al arrancar, con la tabla todavía vacía
+        context.getBean(RegisteredEmailIndex.class).rebuild();
+        context.getBean(UserSearchIndex.class).rebuild();
+        System.out.printf("%,d usuarios insertados, índices reconstruidos en %d s%n", inserted,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    // Secuencia de 1000 operaciones con la proporción pedida, recorrida en orden aleatorio
+    private static Operation[] schedule(Map<Operation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        Operation[] schedule = new Operation[1000];
+        int position = 0;
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            int slots = (int) Math.round(1000.0 * entry.getValue() / total);
+            for (int i = 0; i < slots && position < schedule.length; i++) {
+                schedule[position++] = entry.getKey();
+            }
+        }
+        while (position < schedule.length) {
+            schedule[position] = schedule[position - 1];
+            position++;
+        }
+        return schedule;
+    }
+
+    // Sesiones iniciadas de antemano para check-session y update: {id, cabecera, valor}
+    private List<String[]> openSessions() throws Exception {
+        System.out.printf("Iniciando %d sesiones%n", options.sessions());
+        SplittableRandom random = new SplittableRandom(options.seed());
+        List<String[]> opened = new ArrayList<>();
+        for (int i = 0; i < options.sessions(); i++) {
+            int index = random.nextInt(options.users());
+            HttpResponse<String> response = client.send(login(index), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Login inicial rechazado (" + response.statusCode() + "): " + response.body());
+            }
+            JsonNode token = objectMapper.readTree(response.body()).get("token");
+            if (token != null) {
+                opened.add(new String[]{Long.toString(DatasetGenerator.id(index)), "Authorization", "Bearer " + token.asText()});
+            } else {
+                String cookie = response.headers().firstValue("Set-Cookie").orElseThrow().split(";", 2)[0];
+                opened.add(new String[]{Long.toString(DatasetGenerator.id(index)), "Cookie", cookie});
+            }
+        }
+        return opened;
+    }
+
+    // Devuelve la duración real de la fase. Las peticiones salen a intervalos fijos; si se superan
+    // max-in-flight peticiones pendientes, las nuevas se descartan y se cuentan como tales
+    private long runPhase(Duration duration, boolean measure) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long count = duration.toNanos() / interval;
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        SplittableRandom random = new SplittableRandom(options.seed() ^ System.nanoTime());
+        long start = System.nanoTime();
+        long nextReport = start + TimeUnit.SECONDS.toNanos(10);
+        for (long i = 0; i < count; i++) {
+            long intended = start + i * interval;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = schedule[random.nextInt(schedule.length)];
+            if (!inFlight.tryAcquire()) {
+                dropped.increment();
+                continue;
+            }
+            HttpRequest request = request(operation, random);
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long micros = Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - intended) / 1_000);
+                        if (measure) {
+                            recorders.get(operation).recordValue(micros);
+                            if (failure != null || response.statusCode() >= 400) {
+                                errors.get(operation).increment();
+                                String status = failure != null ? failure.getClass().getSimpleName() : Integer.toString(response.statusCode());
+                                errorsByStatus.computeIfAbsent(operation.label() + " " + status, key -> new LongAdder()).increment();
+                            }
+                        }
+                        inFlight.release();
+                    });
+            if (measure && System.nanoTime() >= nextReport) {
+                progress(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+                nextReport += TimeUnit.SECONDS.toNanos(10);
+            }
+        }
+        // Se espera a las respuestas pendientes para que cuenten en el resultado
+        inFlight.tryAcquire(options.maxInFlight(), 2, TimeUnit.MINUTES);
+        inFlight.release(options.maxInFlight());
+        long elapsed = System.nanoTime() - start;
+        if (measure) {
+            progress(TimeUnit.NANOSECONDS.toSeconds(elapsed));
+        }
+        return elapsed;
+    }
+
+    // Acumula los histogramas del intervalo y muestra el p99 global del intervalo
+    private void progress(long seconds) {
+        Histogram interval = new Histogram(MAX_LATENCY_MICROS, 3);
+        recorders.forEach((operation, recorder) -> {
+            Histogram histogram = recorder.getIntervalHistogram();
+            totals.get(operation).add(histogram);
+            interval.add(histogram);
+        });
+        System.out.printf("  %4d s: %,8d respuestas, p99 %8.1f ms, máx %8.1f ms%n", seconds, interval.getTotalCount(),
+                interval.getValueAtPercentile(99) / 1000.0, interval.getMaxValue() / 1000.0);
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        return switch (operation) {
+            case LOGIN -> login(random.nextInt(options.users()));
+            case REGISTER -> register(registrations.incrementAndGet());
+            case CHECK_SESSION -> authenticated(HttpRequest.newBuilder(baseUri.resolve("/api/auth/check-session")).GET(),
+                    session(random));
+            case GET_BY_ID -> HttpRequest.newBuilder(baseUri.resolve("/api/users/"
+                    + DatasetGenerator.id(random.nextInt(options.users())))).GET().build();
+            case LIST -> HttpRequest.newBuilder(baseUri.resolve("/api/users?size=20&cursor="
+                    + PageCursor.encode(random.nextInt(options.users())))).GET().build();
+            case UPDATE -> json("/api/auth/update", "PUT", objectMapper.createObjectNode()
+                    .put("name", "Usuario " + random.nextInt(1_000_000))
+                    .put("direccion", "Av. Providencia " + random.nextInt(100, 9_999) + ", Providencia")
+                    .put("telefono", "+569" + random.nextInt(10_000_000, 100_000_000)).toString(), session(random));
+        };
+    }
+
+    // Emails nuevos en cada ejecución, también al reutilizar una base de datos en fichero
+    private HttpRequest register(long number) {
+        return json("/api/auth/register", "POST", objectMapper.createObjectNode()
+                .put("name", "Usuario Carga " + number)
+                .put("email", "lt-" + runId + "-" + number + "@loadtest.local")
+                .put("password", PASSWORD).toString(), null);
+    }
+
+    private HttpRequest login(int index) {
+        return json("/api/auth/login", "POST", objectMapper.createObjectNode()
+                .put("email", DatasetGenerator.email(index))
+                .put("password", PASSWORD).toString(), null);
+    }
+
+    private HttpRequest json(String path, String method, String body, String[] session) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body));
+        return session == null ? builder.build() : authenticated(builder, session);
+    }
+
+    private static HttpRequest authenticated(HttpRequest.Builder builder, String[] session) {
+        return builder.header(session[1], session[2]).build();
+    }
+
+    private String[] session(SplittableRandom random) {
+        return sessions.get(random.nextInt(sessions.size()));
+    }
+
+    private void report(long elapsedNanos) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        Files.createDirectories(options.reportDir());
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        System.out.println();
+        System.out.printf("%-14s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operación", "total", "errores", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms");
+        for (Map.Entry<Operation, Histogram> entry : totals.entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            all.add(histogram);
+            print(entry.getKey().label(), histogram, errors.get(entry.getKey()).sum(), seconds);
+            try (PrintStream out = new PrintStream(options.reportDir().resolve(entry.getKey().label() + ".hgrm").toFile())) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        long totalErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        print("total", all, totalErrors, seconds);
+        try (PrintStream out = new PrintStream(options.reportDir().resolve("total.hgrm").toFile())) {
+            all.outputPercentileDistribution(out, 1000.0);
+        }
+        System.out.printf("%nObjetivo %d req/s; %,d peticiones descartadas por superar max-in-flight=%d%n",
+                options.rate(), dropped.sum(), options.maxInFlight());
+        errorsByStatus.forEach((key, count) -> System.out.printf("  error %s: %,d%n", key, count.sum()));
+        System.out.printf("Distribuciones completas (ms) en %s/*.hgrm%n", options.reportDir());
+    }
+
+    private static void print(String label, Histogram histogram, long errors, double seconds) {
+        System.out.printf("%-14s %,9d %,7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, histogram.getTotalCount(), errors,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+}
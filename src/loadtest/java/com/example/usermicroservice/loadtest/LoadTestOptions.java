@@ -0,0 +1,100 @@
+package com.example.usermicroservice.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Opciones de la prueba de carga en formato --clave=valor. Las claves desconocidas (p. ej.
+// --security.password.bcrypt-cost=8) se pasan tal cual a la aplicación como propiedades.
+record LoadTestOptions(int users,
+                       String database,
+                       int rate,
+                       Duration warmup,
+                       Duration duration,
+                       Map<Operation, Integer> mix,
+                       int sessions,
+                       int maxInFlight,
+                       long seed,
+                       Path reportDir,
+                       List<String> applicationArgs) {
+
+    static final String DEFAULT_MIX = "login:10,register:2,check-session:30,get-by-id:30,list:20,update:8";
+
+    static LoadTestOptions parse(String[] args) {
+        int users = 1_000_000;
+        String database = "mem";
+        int rate = 200;
+        Duration warmup = Duration.ofSeconds(15);
+        Duration duration = Duration.ofSeconds(60);
+        String mix = DEFAULT_MIX;
+        int sessions = 200;
+        int maxInFlight = 2_000;
+        long seed = 42;
+        Path reportDir = Path.of("target", "loadtest");
+        List<String> applicationArgs = new ArrayList<>();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido (se espera --clave=valor): " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (key) {
+                case "users" -> users = Integer.parseInt(value.replace("_", ""));
+                case "db" -> database = value;
+                case "rate" -> rate = Integer.parseInt(value);
+                case "warmup" -> warmup = Duration.parse(value);
+                case "duration" -> duration = Duration.parse(value);
+                case "mix" -> mix = value;
+                case "sessions" -> sessions = Integer.parseInt(value);
+                case "max-in-flight" -> maxInFlight = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                case "report-dir" -> reportDir = Path.of(value);
+                default -> applicationArgs.add(arg);
+            }
+        }
+        if (users < 1 || rate < 1 || sessions < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("users, rate, sessions y max-in-flight deben ser positivos");
+        }
+        return new LoadTestOptions(users, database, rate, warmup, duration, parseMix(mix), sessions, maxInFlight,
+                seed, reportDir, List.copyOf(applicationArgs));
+    }
+
+    // "login:10,list:20" -> pesos relativos por operación
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mezcla inválida: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.fromName(pair[0].trim().toLowerCase(Locale.ROOT)), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de operaciones está vacía");
+        }
+        return mix;
+    }
+
+    // URL JDBC: "mem" (se pierde al terminar) o "file:<ruta>" (se reutiliza entre ejecuciones si ya tiene los datos)
+    String jdbcUrl() {
+        if (database.equals("mem")) {
+            return "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+        }
+        if (database.startsWith("file:")) {
+            return "jdbc:h2:" + database + ";DB_CLOSE_ON_EXIT=FALSE";
+        }
+        throw new IllegalArgumentException("--db debe ser mem o file:<ruta>: " + database);
+    }
+
+    boolean persistentDatabase() {
+        return !database.equals("mem");
+    }
+}
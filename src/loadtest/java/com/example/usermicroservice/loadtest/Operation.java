@@ -0,0 +1,30 @@
+package com.example.usermicroservice.loadtest;
+
+// Llamadas HTTP que componen la carga; el nombre es el usado en --mix
+enum Operation {
+    LOGIN("login"),
+    REGISTER("register"),
+    CHECK_SESSION("check-session"),
+    GET_BY_ID("get-by-id"),
+    LIST("list"),
+    UPDATE("update");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    String label() {
+        return label;
+    }
+
+    static Operation fromName(String name) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Operación desconocida: " + name);
+    }
+}
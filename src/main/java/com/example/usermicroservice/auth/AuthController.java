@@ -1,13 +1,18 @@
 package com.example.usermicroservice.auth;
 
+import com.example.usermicroservice.dto.SessionResponse;
 import com.example.usermicroservice.entity.User;
-import com.example.usermicroservice.repository.UserRepository;
-import jakarta.servlet.http.HttpSession;
+import com.example.usermicroservice.service.PasswordResetService;
+import com.example.usermicroservice.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
@@ -20,53 +25,55 @@ import java.util.Optional;
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private final UserRepository userRepository;
-
-    public AuthController(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    private final UserService userService;
+    private final PasswordResetService passwordResetService;
+    private final AuthSessionManager authSessionManager;
+    private final Counter loginSuccesses;
+    private final Counter loginFailures;
+
+    public AuthController(UserService userService, PasswordResetService passwordResetService,
+                          AuthSessionManager authSessionManager, MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.passwordResetService = passwordResetService;
+        this.authSessionManager = authSessionManager;
+        // Contadores registrados una sola vez: incrementarlos no requiere buscar el medidor en cada login
+        this.loginSuccesses = Counter.builder("auth.login").tag("outcome", "success")
+                .description("Intentos de login correctos").register(meterRegistry);
+        this.loginFailures = Counter.builder("auth.login").tag("outcome", "failure")
+                .description("Intentos de login con credenciales incorrectas").register(meterRegistry);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<Map<String, String>> login(@RequestBody LoginRequest loginRequest, HttpSession session) {
-        Optional<User> user = userRepository.findByEmail(loginRequest.getEmail());
-        if (user.isPresent() && user.get().getPassword().equals(loginRequest.getPassword())) {
-            // Guardar el usuario en la sesión
-            session.setAttribute("user", user.get());
+    public ResponseEntity<Map<String, String>> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        Optional<User> user = userService.authenticate(loginRequest.getEmail(), loginRequest.getPassword());
+        if (user.isPresent()) {
+            loginSuccesses.increment();
+            // Guardar el usuario en la sesión o emitir el token, según el modo configurado
+            Optional<String> token = authSessionManager.signIn(request, user.get());
 
             // Crear respuesta de éxito
             Map<String, String> response = new HashMap<>();
             response.put("message", "Login exitoso");
             response.put("role", user.get().getRole());
+            token.ifPresent(value -> response.put("token", value));
             return ResponseEntity.ok(response);
         }
+        loginFailures.increment();
         return ResponseEntity.status(401).body(Map.of("message", "Credenciales incorrectas"));
     }
 
     @GetMapping("/check-session")
-    public ResponseEntity<Map<String, Object>> checkSession(HttpSession session) {
-        User user = (User) session.getAttribute("user");
-        if (user != null) {
-            // Si la sesión es válida, devolver los datos del usuario
-            return ResponseEntity.ok(Map.of(
-                "authenticated", true,
-                "user", Map.of(
-                    "id", user.getId(),
-                    "name", user.getName(),
-                    "email", user.getEmail(),
-                    "role", user.getRole()
-                )
-            ));
-        }
-        return ResponseEntity.status(401).body(Map.of(
-            "authenticated", false,
-            "message", "No hay sesión activa"
-        ));
+    public ResponseEntity<SessionResponse> checkSession(HttpServletRequest request) {
+        // Si la sesión es válida, devolver los datos del usuario (mismo JSON que antes, sin mapas intermedios)
+        return authSessionManager.resolve(request)
+                .map(user -> ResponseEntity.ok(SessionResponse.authenticated(user)))
+                .orElseGet(() -> ResponseEntity.status(401).body(SessionResponse.anonymous()));
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, String>> logout(HttpSession session) {
-        // Invalidar la sesión
-        session.invalidate();
+    public ResponseEntity<Map<String, String>> logout(HttpServletRequest request) {
+        // Invalidar la sesión (en modo jwt no hay estado en el servidor)
+        authSessionManager.signOut(request);
         return ResponseEntity.ok(Map.of("message", "Sesión cerrada"));
     }
 
@@ -101,7 +108,7 @@ public class AuthController {
         }
 
         // Validar si el correo ya está registrado
-        if (userRepository.findByEmail(registerRequest.getEmail()).isPresent()) {
+        if (userService.isEmailRegistered(registerRequest.getEmail())) {
             return ResponseEntity.badRequest().body(Map.of("message", "El correo ya está registrado."));
         }
 
@@ -109,11 +116,15 @@ public class AuthController {
         User user = new User();
         user.setName(registerRequest.getName());
         user.setEmail(registerRequest.getEmail());
-        user.setPassword(registerRequest.getPassword()); // Asegúrate de usar encriptación para la contraseña
+        user.setPassword(registerRequest.getPassword()); // UserService guarda solo el hash bcrypt
         user.setRole("USER"); // Puedes ajustar el rol predeterminado
 
-        // Guardar en la base de datos
-        userRepository.save(user);
+        // Guardar en la base de datos; la restricción única cubre los registros que el índice aún no conoce
+        try {
+            userService.createUser(user);
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "El correo ya está registrado."));
+        }
 
         return ResponseEntity.ok(Map.of("message", "Usuario registrado con éxito"));
     }
@@ -159,37 +170,41 @@ public class AuthController {
 
     @PostMapping("/forgot-password")
     public ResponseEntity<Map<String, String>> forgotPassword(@RequestBody Map<String, String> request) {
-        String email = request.get("email");
-        Optional<User> user = userRepository.findByEmail(email);
-
-        if (user.isPresent()) {
+        // El token y el correo quedan en la bandeja de salida; el envío no retrasa la respuesta
+        if (passwordResetService.requestReset(request.get("email"))) {
             return ResponseEntity.ok(Map.of("message", "Se ha enviado un correo para restablecer tu contraseña."));
         } else {
             return ResponseEntity.status(404).body(Map.of("message", "El correo no está registrado."));
         }
     }
 
+    // Comprobación rápida de disponibilidad del correo para el formulario de registro
+    @RequestMapping(value = "/email-exists", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> emailExists(@RequestParam String email) {
+        if (userService.isEmailRegistered(email)) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+
     @PutMapping("/update")
-    public ResponseEntity<Map<String, String>> updateUser(@Valid @RequestBody UpdateUserRequest updateRequest, HttpSession session) {
-        User currentUser = (User) session.getAttribute("user");
-        if (currentUser == null) {
+    public ResponseEntity<Map<String, String>> updateUser(@Valid @RequestBody UpdateUserRequest updateRequest, HttpServletRequest request) {
+        Optional<AuthenticatedUser> currentUser = authSessionManager.resolve(request);
+        if (currentUser.isEmpty()) {
             return ResponseEntity.status(401).body(Map.of("message", "No hay sesión activa."));
         }
 
-        // Buscar el usuario en la base de datos
-        Optional<User> userOptional = userRepository.findById(currentUser.getId());
+        // Actualizar los datos del usuario en la base de datos
+        Optional<User> userOptional = userService.updateProfile(currentUser.get().id(),
+                updateRequest.getName(), updateRequest.getDireccion(), updateRequest.getTelefono());
         if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            // Actualizar los datos del usuario
-            user.setName(updateRequest.getName());
-            user.setDireccion(updateRequest.getDireccion());
-            user.setTelefono(updateRequest.getTelefono());
-            userRepository.save(user);
+            // Actualizar los datos en la sesión (o emitir un token con los datos nuevos)
+            Optional<String> token = authSessionManager.signIn(request, userOptional.get());
 
-            // Actualizar los datos en la sesión
-            session.setAttribute("user", user);
-
-            return ResponseEntity.ok(Map.of("message", "Datos actualizados correctamente."));
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Datos actualizados correctamente.");
+            token.ifPresent(value -> response.put("token", value));
+            return ResponseEntity.ok(response);
         }
 
         return ResponseEntity.status(404).body(Map.of("message", "Usuario no encontrado."));
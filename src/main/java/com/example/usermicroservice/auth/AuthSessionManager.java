@@ -0,0 +1,71 @@
+package com.example.usermicroservice.auth;
+
+import com.example.usermicroservice.entity.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+// Resuelve el usuario autenticado según el modo configurado (auth.mode):
+// "session" guarda el usuario en la HttpSession; "jwt" usa un token firmado y no crea sesiones
+@Component
+public class AuthSessionManager {
+
+    static final String SESSION_ATTRIBUTE = "user";
+
+    private final JwtService jwtService;
+    private final boolean stateless;
+
+    public AuthSessionManager(JwtService jwtService, @Value("${auth.mode:session}") String mode) {
+        this.jwtService = jwtService;
+        this.stateless = "jwt".equalsIgnoreCase(mode);
+    }
+
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    public Optional<AuthenticatedUser> resolve(HttpServletRequest request) {
+        if (stateless) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                return Optional.of(user);
+            }
+            return Optional.empty();
+        }
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return Optional.empty();
+        }
+        Object principal = session.getAttribute(SESSION_ATTRIBUTE);
+        if (principal instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        // Sesiones creadas antes de guardar el principal compacto
+        if (principal instanceof User legacy) {
+            return Optional.of(AuthenticatedUser.from(legacy));
+        }
+        return Optional.empty();
+    }
+
+    // Inicia (o refresca) la autenticación; en modo jwt devuelve el token a entregar al cliente
+    public Optional<String> signIn(HttpServletRequest request, User user) {
+        if (stateless) {
+            return Optional.of(jwtService.issue(AuthenticatedUser.from(user)));
+        }
+        // Solo el principal compacto: la entidad completa (contraseña incluida) nunca entra en la sesión
+        request.getSession(true).setAttribute(SESSION_ATTRIBUTE, AuthenticatedUser.from(user));
+        return Optional.empty();
+    }
+
+    public void signOut(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.usermicroservice.auth;
+
+import com.example.usermicroservice.entity.User;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serial;
+import java.io.Serializable;
+
+// Identidad del usuario autenticado, independiente del modo de autenticación (sesión o token).
+// Es lo único que se guarda en la HttpSession; el resto de datos se carga desde la caché cuando hace falta.
+public record AuthenticatedUser(Long id, String name, String email, String role) implements Serializable {
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getName(), user.getEmail(), user.getRole());
+    }
+
+    @JsonIgnore
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    // Al persistir o replicar la sesión se escribe la forma compacta en lugar del record
+    @Serial
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+
+    // Forma serializada: un byte de formato y los cuatro campos, sin metadatos por campo
+    static final class SerializedForm implements Externalizable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private static final byte FORMAT = 1;
+
+        private AuthenticatedUser user;
+
+        public SerializedForm() {
+            // Requerido por Externalizable
+        }
+
+        SerializedForm(AuthenticatedUser user) {
+            this.user = user;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(FORMAT);
+            out.writeBoolean(user.id() != null);
+            if (user.id() != null) {
+                out.writeLong(user.id());
+            }
+            writeNullable(out, user.name());
+            writeNullable(out, user.email());
+            writeNullable(out, user.role());
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            byte format = in.readByte();
+            if (format != FORMAT) {
+                throw new IOException("Formato de sesión desconocido: " + format);
+            }
+            Long id = in.readBoolean() ? in.readLong() : null;
+            user = new AuthenticatedUser(id, readNullable(in), readNullable(in), readNullable(in));
+        }
+
+        @Serial
+        private Object readResolve() {
+            return user;
+        }
+
+        private static void writeNullable(ObjectOutput out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String readNullable(ObjectInput in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
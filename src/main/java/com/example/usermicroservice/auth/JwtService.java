@@ -0,0 +1,58 @@
+package com.example.usermicroservice.auth;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+
+// Emite y valida los tokens firmados (HS256) del modo de autenticación sin estado
+@Component
+public class JwtService {
+
+    private final SecretKey key;
+    private final long expirationMillis;
+    private final JwtParser parser;
+
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.expiration}") long expirationMillis) {
+        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.expirationMillis = expirationMillis;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
+
+    public String issue(AuthenticatedUser user) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setSubject(String.valueOf(user.id()))
+                .claim("name", user.name())
+                .claim("email", user.email())
+                .claim("role", user.role())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + expirationMillis))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    // Devuelve vacío si el token no es válido, está mal firmado o ha expirado
+    public Optional<AuthenticatedUser> parse(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            return Optional.of(new AuthenticatedUser(
+                    Long.valueOf(claims.getSubject()),
+                    claims.get("name", String.class),
+                    claims.get("email", String.class),
+                    claims.get("role", String.class)));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
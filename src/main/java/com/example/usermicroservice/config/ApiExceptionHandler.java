@@ -0,0 +1,45 @@
+package com.example.usermicroservice.config;
+
+import com.example.usermicroservice.service.PasswordHashingUnavailableException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // Contrapresión: el ejecutor de hashing está lleno, el cliente debe reintentar
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleHashingUnavailable(PasswordHashingUnavailableException e) {
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", "Servicio ocupado, inténtalo de nuevo."));
+    }
+
+    // Contrapresión: no quedó una conexión libre a tiempo (modo con hilos virtuales). La excepción de JDBC
+    // llega envuelta por Spring o Hibernate; cualquier otro fallo de acceso a datos sigue su curso
+    @ExceptionHandler({DataAccessException.class, TransactionException.class})
+    public ResponseEntity<Map<String, String>> handleDataAccess(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectionLimitingDataSource.DatabaseBusyException) {
+                return ResponseEntity.status(503)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(Map.of("message", "Servicio ocupado, inténtalo de nuevo."));
+            }
+        }
+        throw e;
+    }
+
+    // Concurrencia optimista: el usuario cambió desde que el cliente lo leyó
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLock(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(409)
+                .body(Map.of("message", "El usuario fue modificado por otra petición; vuelve a cargarlo e inténtalo de nuevo."));
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.usermicroservice.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Limita los intentos contra los endpoints públicos de /api/auth por IP y por email, antes de
+// llegar a Spring Security y a la base de datos. Las peticiones rechazadas reciben 429 con Retry-After.
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    static final int MAX_BODY_BYTES = 16 * 1024;
+
+    // Límites de un endpoint (solo POST); cualquiera de los dos puede estar desactivado
+    public record EndpointRule(String path, String name, RateLimit perIp, RateLimit perEmail) {
+    }
+
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public AuthRateLimitFilter(List<EndpointRule> rules, int maxKeys, ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry, LongSupplier clock) {
+        this.objectMapper = objectMapper;
+        for (EndpointRule rule : rules) {
+            endpoints.put(rule.path(), new Endpoint(
+                    limiter(rule, "ip", rule.perIp(), maxKeys, meterRegistry, clock),
+                    limiter(rule, "email", rule.perEmail(), maxKeys, meterRegistry, clock)));
+        }
+    }
+
+    private static Limiter limiter(EndpointRule rule, String key, RateLimit limit, int maxKeys,
+                                   MeterRegistry meterRegistry, LongSupplier clock) {
+        if (!limit.enabled()) {
+            return null;
+        }
+        TokenBucketLimiter buckets = new TokenBucketLimiter(limit, maxKeys, clock);
+        Gauge.builder("auth.rate_limit.keys", buckets, TokenBucketLimiter::trackedKeys)
+                .tag("endpoint", rule.name()).tag("key", key)
+                .description("Claves con estado en el limitador").register(meterRegistry);
+        Counter rejected = Counter.builder("auth.rate_limit.rejected")
+                .tag("endpoint", rule.name()).tag("key", key)
+                .description("Peticiones rechazadas por exceso de intentos").register(meterRegistry);
+        return new Limiter(buckets, rejected);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !endpoints.containsKey(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Endpoint endpoint = endpoints.get(path(request));
+        // Primero la IP: no hace falta leer el cuerpo para rechazar una ráfaga desde un mismo origen
+        if (endpoint.perIp() != null && reject(endpoint.perIp(), request.getRemoteAddr(), response)) {
+            return;
+        }
+        if (endpoint.perEmail() == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        String email = extractEmail(body);
+        if (email != null && reject(endpoint.perEmail(), email.trim().toLowerCase(Locale.ROOT), response)) {
+            return;
+        }
+        chain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    private boolean reject(Limiter limiter, String key, HttpServletResponse response) throws IOException {
+        long waitNanos = limiter.buckets().tryAcquire(key);
+        if (waitNanos == 0) {
+            return false;
+        }
+        limiter.rejected().increment();
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write("{\"message\":\"Demasiados intentos, inténtalo más tarde.\"}"
+                .getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    // El email se lee del JSON del cuerpo; si no es JSON válido el controlador responderá 400
+    private String extractEmail(byte[] body) {
+        try {
+            JsonNode email = objectMapper.readTree(body).path("email");
+            return email.isTextual() ? email.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private record Limiter(TokenBucketLimiter buckets, Counter rejected) {
+    }
+
+    private record Endpoint(Limiter perIp, Limiter perEmail) {
+    }
+
+    // Petición con el cuerpo ya leído, para que el controlador pueda volver a leerlo
+    static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.usermicroservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Con hilos virtuales no hay un pool de Tomcat que limite la concurrencia y miles de peticiones pueden llegar
+// a la vez a un pool de Hikari de pocas conexiones. Este envoltorio toma un permiso al pedir una conexión y lo
+// devuelve al cerrarla, así que solo limita el tiempo con una conexión en uso: las peticiones que no tocan la
+// base de datos no esperan. Si no hay permiso en acquire-timeout se lanza DatabaseBusyException, que la API
+// responde con 503 y Retry-After, en lugar de esperar el connection-timeout completo de Hikari.
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter rejected;
+
+    public ConnectionLimitingDataSource(DataSource target, String pool, int maxConnections, Duration acquireTimeout,
+                                        MeterRegistry meterRegistry) {
+        super(target);
+        this.permits = new Semaphore(maxConnections, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.rejected = Counter.builder("db.concurrency.rejected").tag("pool", pool)
+                .description("Peticiones de conexión rechazadas por falta de permisos")
+                .register(meterRegistry);
+        Gauge.builder("db.concurrency.available", permits, Semaphore::availablePermits).tag("pool", pool)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException("Espera de conexión interrumpida");
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new DatabaseBusyException("No hay conexiones libres a la base de datos");
+        }
+    }
+
+    // El permiso se devuelve una sola vez, en el primer close()
+    private Connection limited(Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                        if (closed.compareAndSet(false, true)) {
+                            try {
+                                connection.close();
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    public static class DatabaseBusyException extends SQLTransientConnectionException {
+        public DatabaseBusyException(String message) {
+            super(message);
+        }
+    }
+}
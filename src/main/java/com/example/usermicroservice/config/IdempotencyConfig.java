@@ -0,0 +1,31 @@
+package com.example.usermicroservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+// Idempotency-Key en las altas de usuarios. Se registra antes de la limitación de intentos: una repetición
+// se responde desde memoria sin consumir intentos, y un 429 nunca queda guardado como respuesta de la clave
+@Configuration
+@ConditionalOnProperty(name = "users.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyConfig {
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            @Value("${users.idempotency.max-keys:50000}") long maxKeys,
+            @Value("${users.idempotency.ttl:PT1H}") Duration ttl,
+            @Value("${users.idempotency.wait-timeout:PT30S}") Duration waitTimeout,
+            MeterRegistry meterRegistry) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(maxKeys, ttl, waitTimeout, meterRegistry));
+        registration.addUrlPatterns("/api/users", "/api/auth/register");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+        return registration;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.usermicroservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Cabecera Idempotency-Key en los POST de alta: la primera petición con una clave se ejecuta y su respuesta
+// se guarda; las repeticiones reciben la respuesta guardada sin llegar al controlador ni a la base de datos,
+// y las que llegan mientras la primera está en curso esperan su resultado. Una clave reutilizada con otro
+// cuerpo recibe 422. Las respuestas 5xx y 429 no se guardan: el cliente puede reintentar con la misma clave
+public class IdempotencyFilter extends OncePerRequestFilter {
+    static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, InFlight> responses;
+    private final long waitTimeoutNanos;
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter mismatched;
+    private final Counter timedOut;
+
+    public IdempotencyFilter(long maxKeys, Duration ttl, Duration waitTimeout, MeterRegistry meterRegistry) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.executed = outcome(meterRegistry, "executed", "Peticiones con clave ejecutadas por primera vez");
+        this.replayed = outcome(meterRegistry, "replayed", "Repeticiones respondidas con la respuesta guardada");
+        this.mismatched = outcome(meterRegistry, "mismatch", "Claves reutilizadas con otro cuerpo");
+        this.timedOut = outcome(meterRegistry, "timeout", "Repeticiones que se cansaron de esperar a la primera");
+        Gauge.builder("idempotency.keys", responses, Cache::estimatedSize)
+                .description("Claves guardadas").register(meterRegistry);
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome, String description) {
+        return Counter.builder("idempotency.requests").tag("outcome", outcome)
+                .description(description).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeMessage(response, HttpServletResponse.SC_BAD_REQUEST, "Idempotency-Key inválida.");
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(AuthRateLimitFilter.MAX_BODY_BYTES + 1);
+        if (body.length > AuthRateLimitFilter.MAX_BODY_BYTES) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        byte[] fingerprint = sha256(body);
+
+        // Si la primera ejecución no deja respuesta guardada (5xx, 429, excepción) la siguiente vuelta la repite
+        while (true) {
+            InFlight mine = new InFlight(fingerprint);
+            InFlight existing = responses.asMap().putIfAbsent(path + " " + key, mine);
+            if (existing == null) {
+                execute(path + " " + key, mine, new AuthRateLimitFilter.CachedBodyRequest(request, body), response, chain);
+                return;
+            }
+            if (!Arrays.equals(existing.fingerprint(), fingerprint)) {
+                mismatched.increment();
+                writeMessage(response, 422, "La Idempotency-Key ya se usó con otra petición.");
+                return;
+            }
+            StoredResponse stored;
+            try {
+                stored = existing.result().get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                timedOut.increment();
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                writeMessage(response, HttpServletResponse.SC_CONFLICT, "La petición original sigue en curso.");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                stored = null;
+            }
+            if (stored != null) {
+                replayed.increment();
+                stored.writeTo(response);
+                return;
+            }
+        }
+    }
+
+    private void execute(String storeKey, InFlight mine, HttpServletRequest request, HttpServletResponse response,
+                         FilterChain chain) throws ServletException, IOException {
+        executed.increment();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse stored = null;
+        try {
+            chain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status < 500 && status != 429) {
+                stored = StoredResponse.capture(wrapper);
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            if (stored == null) {
+                responses.asMap().remove(storeKey, mine);
+            }
+            mine.result().complete(stored);
+        }
+    }
+
+    private static void writeMessage(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(("{\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Entrada del almacén: huella del cuerpo y respuesta, que se completa al terminar la primera ejecución
+    // (con null si no debe reutilizarse)
+    private record InFlight(byte[] fingerprint, CompletableFuture<StoredResponse> result) {
+        InFlight(byte[] fingerprint) {
+            this(fingerprint, new CompletableFuture<>());
+        }
+    }
+
+    // Estado, cabeceras y cuerpo tal como se enviaron; Set-Cookie no se repite porque pertenece a aquella respuesta
+    private record StoredResponse(int status, List<Map.Entry<String, String>> headers, byte[] body) {
+
+        static StoredResponse capture(ContentCachingResponseWrapper response) {
+            List<Map.Entry<String, String>> headers = new ArrayList<>();
+            for (String name : response.getHeaderNames()) {
+                if (!HttpHeaders.SET_COOKIE.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                        && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+                    response.getHeaders(name).forEach(value -> headers.add(Map.entry(name, value)));
+                }
+            }
+            // Content-Type aparte: no todos los contenedores lo incluyen en getHeaderNames
+            if (response.getContentType() != null) {
+                headers.add(Map.entry(HttpHeaders.CONTENT_TYPE, response.getContentType()));
+            }
+            return new StoredResponse(response.getStatus(), List.copyOf(headers), response.getContentAsByteArray());
+        }
+
+        void writeTo(HttpServletResponse response) throws IOException {
+            response.setStatus(status);
+            headers.forEach(header -> response.addHeader(header.getKey(), header.getValue()));
+            response.setHeader(REPLAYED_HEADER, "true");
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.usermicroservice.config;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+
+// Límite "capacidad/periodo" (p. ej. 5/1m): ráfaga de hasta capacity peticiones, que se recupera
+// de forma continua a razón de capacity por periodo. "0" o vacío desactiva el límite.
+public record RateLimit(int capacity, Duration period) {
+
+    public RateLimit {
+        if (capacity < 0 || period.isNegative() || (capacity > 0 && period.isZero())) {
+            throw new IllegalArgumentException("Límite inválido: " + capacity + "/" + period);
+        }
+    }
+
+    public static RateLimit parse(String value) {
+        if (value == null || value.isBlank() || value.trim().equals("0")) {
+            return new RateLimit(0, Duration.ZERO);
+        }
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Formato esperado capacidad/periodo: " + value);
+        }
+        return new RateLimit(Integer.parseInt(value.substring(0, slash).trim()),
+                DurationStyle.detectAndParse(value.substring(slash + 1).trim()));
+    }
+
+    public boolean enabled() {
+        return capacity > 0;
+    }
+}
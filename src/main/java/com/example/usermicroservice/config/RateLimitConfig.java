@@ -0,0 +1,45 @@
+package com.example.usermicroservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+// Limitación de intentos en /api/auth. Se registra antes de Spring Security y del límite de
+// concurrencia de base de datos, para que una ráfaga rechazada no consuma recursos.
+// Detrás de un proxy, server.forward-headers-strategy hace que getRemoteAddr sea la IP del cliente.
+@Configuration
+@ConditionalOnProperty(name = "auth.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<AuthRateLimitFilter> authRateLimitFilter(
+            @Value("${auth.rate-limit.login.per-ip:30/1m}") String loginPerIp,
+            @Value("${auth.rate-limit.login.per-email:5/1m}") String loginPerEmail,
+            @Value("${auth.rate-limit.register.per-ip:10/1m}") String registerPerIp,
+            @Value("${auth.rate-limit.register.per-email:3/10m}") String registerPerEmail,
+            @Value("${auth.rate-limit.forgot-password.per-ip:10/1m}") String forgotPerIp,
+            @Value("${auth.rate-limit.forgot-password.per-email:3/10m}") String forgotPerEmail,
+            @Value("${auth.rate-limit.max-keys:100000}") int maxKeys,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        List<AuthRateLimitFilter.EndpointRule> rules = List.of(
+                new AuthRateLimitFilter.EndpointRule("/api/auth/login", "login",
+                        RateLimit.parse(loginPerIp), RateLimit.parse(loginPerEmail)),
+                new AuthRateLimitFilter.EndpointRule("/api/auth/register", "register",
+                        RateLimit.parse(registerPerIp), RateLimit.parse(registerPerEmail)),
+                new AuthRateLimitFilter.EndpointRule("/api/auth/forgot-password", "forgot-password",
+                        RateLimit.parse(forgotPerIp), RateLimit.parse(forgotPerEmail)));
+        FilterRegistrationBean<AuthRateLimitFilter> registration = new FilterRegistrationBean<>(
+                new AuthRateLimitFilter(rules, maxKeys, objectMapper, meterRegistry, System::nanoTime));
+        registration.addUrlPatterns("/api/auth/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.usermicroservice.config;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Conexiones de transacciones de solo lectura a la réplica y todo lo demás al primario. Debe usarse detrás de
+// LazyConnectionDataSourceProxy: así la conexión se elige con la primera sentencia, cuando la transacción
+// ya marcó si es de solo lectura, y no al comenzarla
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primaryConnections = Counter.builder("datasource.routing.connections").tag("route", "primary")
+                .description("Conexiones asignadas al primario").register(meterRegistry);
+        this.replicaConnections = Counter.builder("datasource.routing.connections").tag("route", "replica")
+                .description("Conexiones asignadas a la réplica").register(meterRegistry);
+    }
+
+    @Override
+    protected Route determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (readOnly && !ReadRouting.readsFromPrimary()) {
+            replicaConnections.increment();
+            return Route.REPLICA;
+        }
+        if (!readOnly && TransactionSynchronizationManager.isActualTransactionActive()) {
+            ReadRouting.recordWrite();
+        }
+        primaryConnections.increment();
+        return Route.PRIMARY;
+    }
+}
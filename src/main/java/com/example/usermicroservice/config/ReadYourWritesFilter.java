@@ -0,0 +1,72 @@
+package com.example.usermicroservice.config;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+// Lectura de las propias escrituras con réplica: cuando una petición escribe, la respuesta lleva una cookie
+// con el instante hasta el que esa sesión debe leer del primario. No depende de la sesión HTTP (sirve también
+// en modo jwt) ni de la instancia; falsificarla solo consigue leer del primario
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE_NAME = "read-primary-until";
+
+    private final Duration window;
+    private final LongSupplier clock;
+
+    public ReadYourWritesFilter(Duration window, LongSupplier clock) {
+        this.window = window;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadRouting.beginRequest(pinnedUntil(request) > clock.getAsLong(), () -> markWrite(response));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadRouting.endRequest();
+        }
+    }
+
+    // Se llama en la primera escritura, antes de que el controlador escriba la respuesta
+    private void markWrite(HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, Long.toString(clock.getAsLong() + window.toMillis()))
+                .httpOnly(true)
+                .path("/")
+                .maxAge(window)
+                .sameSite("Lax")
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private static long pinnedUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -1,22 +1,40 @@
 package com.example.usermicroservice.config;
 
+import com.example.usermicroservice.auth.AuthSessionManager;
+import com.example.usermicroservice.auth.JwtAuthenticationFilter;
+import com.example.usermicroservice.auth.JwtService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthSessionManager authSessionManager,
+                                                   JwtService jwtService) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
+            // Solo health es público; métricas y el resto de actuator requieren el usuario de gestión
+            // (spring.security.user.*, rol ACTUATOR) por HTTP Basic, como lo envía Prometheus
             .authorizeHttpRequests(auth -> auth
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ACTUATOR")
                 .requestMatchers("/api/**").permitAll()
                 .anyRequest().authenticated()
-                
-            );
+            )
+            .httpBasic(Customizer.withDefaults());
+
+        // Modo sin estado: el usuario viaja en un token firmado y no se crean sesiones HTTP
+        if (authSessionManager.isStateless()) {
+            http
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService), UsernamePasswordAuthenticationFilter.class);
+        }
 
         return http.build();
     }
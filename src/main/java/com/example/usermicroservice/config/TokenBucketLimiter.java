@@ -0,0 +1,130 @@
+package com.example.usermicroservice.config;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token bucket por clave implementado como GCRA: el estado de cada clave es un único long
+// (el instante teórico de llegada, TAT) que se actualiza con CAS, sin bloqueos.
+// Las claves inactivas se eliminan con una rueda de tiempo: cada bucket está en la ranura del
+// instante en que vuelve a estar lleno, y el barrido solo visita la ranura vencida, nunca todo el mapa.
+public class TokenBucketLimiter {
+
+    static final int WHEEL_SLOTS = 64;
+    private static final long MIN_TICK_NANOS = 10_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Queue<Bucket>[] wheel;
+    private final long tickNanos;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketLimiter(RateLimit limit, int maxKeys, LongSupplier clock) {
+        if (!limit.enabled()) {
+            throw new IllegalArgumentException("El límite debe tener capacidad positiva");
+        }
+        long periodNanos = limit.period().toNanos();
+        this.emissionIntervalNanos = Math.max(1, periodNanos / limit.capacity());
+        this.burstToleranceNanos = emissionIntervalNanos * (limit.capacity() - 1);
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        // Una vuelta de la rueda cubre el periodo completo: un bucket nunca tarda más que eso en llenarse
+        this.tickNanos = Math.max(MIN_TICK_NANOS, periodNanos / WHEEL_SLOTS + 1);
+        this.wheel = new Queue[WHEEL_SLOTS];
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.currentTick = Math.floorDiv(clock.getAsLong(), tickNanos);
+    }
+
+    // Devuelve 0 si la petición se admite, o los nanosegundos que faltan para el próximo token
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        expireIdle(now);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                // Sin memoria para más claves se deja pasar: el resto de límites sigue aplicándose
+                return 0;
+            }
+            Bucket created = new Bucket(key, now);
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+                schedule(created, now + emissionIntervalNanos);
+            }
+        }
+        while (true) {
+            long tat = bucket.tat.get();
+            long base = Math.max(tat, now);
+            long wait = base - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.tat.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int trackedKeys() {
+        return buckets.size();
+    }
+
+    // Avanza la rueda hasta el instante actual; solo un hilo barre a la vez y el resto no espera
+    void expireIdle(long now) {
+        long targetTick = Math.floorDiv(now, tickNanos);
+        if (targetTick <= currentTick || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long tick = currentTick;
+            // Tras una pausa larga basta con una vuelta completa: todas las ranuras quedan visitadas
+            long from = Math.max(tick + 1, targetTick - WHEEL_SLOTS + 1);
+            for (long t = from; t <= targetTick; t++) {
+                currentTick = t;
+                Queue<Bucket> slot = wheel[(int) Math.floorMod(t, WHEEL_SLOTS)];
+                for (int pending = slot.size(); pending > 0; pending--) {
+                    Bucket bucket = slot.poll();
+                    if (bucket == null) {
+                        break;
+                    }
+                    long tat = bucket.tat.get();
+                    if (tat <= now) {
+                        // Lleno de nuevo: equivale a no tener estado. Una adquisición concurrente sobre
+                        // este bucket a lo sumo concede un token extra a una clave que ya estaba inactiva.
+                        buckets.remove(bucket.key, bucket);
+                    } else {
+                        schedule(bucket, tat);
+                    }
+                }
+            }
+            currentTick = targetTick;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void schedule(Bucket bucket, long expiresAt) {
+        long tick = Math.max(Math.floorDiv(expiresAt, tickNanos), currentTick + 1);
+        wheel[(int) Math.floorMod(tick, WHEEL_SLOTS)].add(bucket);
+    }
+
+    private static final class Bucket {
+        private final String key;
+        private final AtomicLong tat;
+
+        private Bucket(String key, long now) {
+            this.key = key;
+            this.tat = new AtomicLong(now);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.usermicroservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Solo activo con spring.threads.virtual.enabled=true sobre JDK 21+: Tomcat, @Async y las tareas
+// programadas pasan a hilos virtuales, y cada pool de Hikari (primario y réplica) queda detrás de un
+// semáforo del tamaño del pool que acota cuántos hilos pueden tener o esperar una conexión.
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // Se envuelve después de inicializar el pool, cuando ya tiene aplicado su maximum-pool-size
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSources(
+            @Value("${users.virtual-threads.acquire-timeout:2s}") Duration acquireTimeout,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    String name = pool.getPoolName() != null ? pool.getPoolName() : beanName;
+                    return new ConnectionLimitingDataSource(pool, name, pool.getMaximumPoolSize(), acquireTimeout,
+                            meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.usermicroservice.controller;
+
+import com.example.usermicroservice.service.UserChangeFeed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Flujo de cambios de usuarios por Server-Sent Events, para mantener una copia sin consultar el listado completo.
+// Cada evento lleva como id la posición "epoch:offset". Un cliente nuevo recibe primero un evento "position",
+// copia los datos (GET /api/users o /api/users/lookup) y aplica los cambios recibidos desde esa posición.
+// Al reconectar, EventSource envía Last-Event-ID y el flujo continúa desde ahí. Si esa posición ya no está en
+// el búfer o es de otro arranque, se envía "reset" y se cierra la conexión: el cliente debe copiar de nuevo.
+// Los datos de cada cambio tienen la forma de UserResponse (con version). El flujo solo incluye las escrituras
+// hechas en esta instancia; detrás de un balanceador con varias instancias no es una copia completa
+@RestController
+@RequestMapping("/api/users/changes")
+public class UserChangeFeedController {
+    // Cambios leídos del búfer en cada vuelta del envío
+    private static final int SEND_BATCH = 100;
+
+    private final UserChangeFeed feed;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    // Un hilo por suscriptor como máximo: un cliente que no lee bloquea solo su propio envío
+    private final ThreadPoolExecutor senders;
+    private final Counter lagging;
+
+    public UserChangeFeedController(UserChangeFeed feed,
+                                    @Value("${users.feed.timeout:PT30M}") Duration timeout,
+                                    @Value("${users.feed.max-subscribers:100}") int maxSubscribers,
+                                    MeterRegistry meterRegistry) {
+        this.feed = feed;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxSubscribers = Math.max(1, maxSubscribers);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(0, this.maxSubscribers, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-feed-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.lagging = Counter.builder("users.feed.disconnects").tag("reason", "lagging")
+                .description("Suscriptores desconectados porque el búfer los adelantó").register(meterRegistry);
+        Gauge.builder("users.feed.subscribers", subscriptions, Set::size)
+                .description("Conexiones abiertas al flujo de cambios").register(meterRegistry);
+    }
+
+    // La posición de reanudación llega en Last-Event-ID (reconexión de EventSource) o en ?after=
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                              @RequestParam(required = false) String after) {
+        String position = after != null ? after : lastEventId;
+        // Reserva la plaza antes de crear la suscripción para no superar el máximo con conexiones simultáneas
+        Subscription subscription;
+        synchronized (subscriptions) {
+            if (subscriptions.size() >= maxSubscribers) {
+                return ResponseEntity.status(503).build(); // Demasiados suscriptores
+            }
+            subscription = new Subscription(new SseEmitter(timeoutMillis));
+            subscriptions.add(subscription);
+        }
+        subscription.start(position);
+        return ResponseEntity.ok(subscription.emitter);
+    }
+
+    // Comentario periódico: mantiene abierta la conexión a través de proxies y detecta clientes desconectados
+    @Scheduled(fixedDelayString = "${users.feed.heartbeat:PT15S}")
+    public void heartbeat() {
+        subscriptions.forEach(Subscription::requestHeartbeat);
+    }
+
+    @PreDestroy
+    public void close() {
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    String cursor(long offset) {
+        return feed.epoch() + ":" + offset;
+    }
+
+    // Offset del cursor si es de este arranque; -1 si no lo es o no se entiende
+    long parseCursor(String cursor) {
+        int separator = cursor.lastIndexOf(':');
+        if (separator < 0 || !cursor.substring(0, separator).equals(feed.epoch())) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Posición de un suscriptor en el búfer; el envío lo hace a lo sumo un hilo a la vez
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable wake = this::wake;
+        private volatile boolean heartbeatDue;
+        private volatile boolean closed;
+        private long offset;
+
+        Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(error -> close());
+        }
+
+        void start(String position) {
+            long resumeFrom = position == null || position.isBlank() ? -1 : parseCursor(position.trim());
+            try {
+                if (position == null || position.isBlank()) {
+                    offset = feed.latestOffset();
+                    emitter.send(SseEmitter.event().name("position").id(cursor(offset)).data(cursor(offset)));
+                } else if (resumeFrom < 0 || feed.read(resumeFrom, 0).gap()) {
+                    reset();
+                    return;
+                } else {
+                    offset = resumeFrom;
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            feed.addListener(wake);
+            wake();
+        }
+
+        void requestHeartbeat() {
+            heartbeatDue = true;
+            wake();
+        }
+
+        private void wake() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Sin hilos libres (o apagando): lo reintentará el siguiente cambio o el siguiente latido
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed) {
+                    UserChangeFeed.Batch batch = feed.read(offset, SEND_BATCH);
+                    if (batch.gap()) {
+                        lagging.increment();
+                        reset();
+                        return;
+                    }
+                    if (batch.changes().isEmpty()) {
+                        if (heartbeatDue) {
+                            heartbeatDue = false;
+                            emitter.send(SseEmitter.event().comment("ping"));
+                        }
+                        break;
+                    }
+                    for (UserChangeFeed.Change change : batch.changes()) {
+                        emitter.send(SseEmitter.event()
+                                .id(cursor(change.offset()))
+                                .name(change.type().name().toLowerCase(Locale.ROOT))
+                                .data(change, MediaType.APPLICATION_JSON));
+                        offset = change.offset();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado o emisor ya cerrado
+                close();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // Un cambio publicado entre la última lectura y la liberación del turno no habría despertado a nadie
+            if (!closed && feed.latestOffset() > offset) {
+                wake();
+            }
+        }
+
+        // Posición desconocida o adelantada por el búfer: se indica la actual y se cierra para que el cliente resincronice
+        private void reset() throws IOException {
+            long current = feed.latestOffset();
+            emitter.send(SseEmitter.event().name("reset").id(cursor(current)).data(cursor(current)));
+            emitter.complete();
+            close();
+        }
+
+        private void close() {
+            closed = true;
+            feed.removeListener(wake);
+            subscriptions.remove(this);
+        }
+    }
+}
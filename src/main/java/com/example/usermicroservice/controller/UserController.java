@@ -1,73 +1,288 @@
 package com.example.usermicroservice.controller;
 
+import com.example.usermicroservice.auth.AuthSessionManager;
+import com.example.usermicroservice.auth.AuthenticatedUser;
+import com.example.usermicroservice.dto.ImportResult;
+import com.example.usermicroservice.dto.UserLookup;
+import com.example.usermicroservice.dto.UserLookupRequest;
+import com.example.usermicroservice.dto.UserPage;
+import com.example.usermicroservice.dto.UserPatchRequest;
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.dto.UserStats;
 import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.service.UserDataFormat;
+import com.example.usermicroservice.service.UserExportService;
+import com.example.usermicroservice.service.UserImportService;
+import com.example.usermicroservice.service.UserLookupService;
+import com.example.usermicroservice.service.UserSearchService;
+import com.example.usermicroservice.service.UserStatistics;
+import com.example.usermicroservice.service.UserTableVersion;
 import com.example.usermicroservice.service.UserService;
 
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
+    // Datos de usuario: el navegador puede guardarlos, pero debe revalidarlos en cada uso
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    private static final String SEARCH_TRUNCATED = "Search-Truncated";
+
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final UserSearchService userSearchService;
+    private final UserLookupService userLookupService;
+    private final UserStatistics userStatistics;
+    private final UserTableVersion userTableVersion;
+    private final AuthSessionManager authSessionManager;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserExportService userExportService,
+                          UserImportService userImportService, UserSearchService userSearchService,
+                          UserLookupService userLookupService, UserStatistics userStatistics,
+                          UserTableVersion userTableVersion, AuthSessionManager authSessionManager) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
+        this.userSearchService = userSearchService;
+        this.userLookupService = userLookupService;
+        this.userStatistics = userStatistics;
+        this.userTableVersion = userTableVersion;
+        this.authSessionManager = authSessionManager;
     }
 
-    // Obtener todos los usuarios
+    // Obtener los usuarios paginados por cursor. El ETag combina la versión de la tabla con los parámetros
+    // normalizados de la consulta: si la tabla no cambió se responde 304 sin consultar la base de datos
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<UserPage> getAllUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = "\"users-" + userTableVersion.tag() + "-" + queryHash(cursor, size, role, createdFrom, createdTo) + "\"";
+        if (notModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+        try {
+            UserPage page = userService.getUsersPage(cursor, size, role, createdFrom, createdTo);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Cursor inválido
+        }
+    }
+
+    // Buscar usuarios por prefijo del nombre o del email, ordenados por relevancia. Con "Search-Truncated: true"
+    // la consulta era demasiado amplia y puede faltar algún usuario: conviene afinarla
+    @GetMapping("/search")
+    public ResponseEntity<List<UserResponse>> searchUsers(@RequestParam String q,
+                                                          @RequestParam(required = false) Integer limit) {
+        try {
+            UserSearchService.Result result = userSearchService.search(q, limit);
+            if (result.truncated()) {
+                return ResponseEntity.ok().header(SEARCH_TRUNCATED, "true").body(result.users());
+            }
+            return ResponseEntity.ok(result.users());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Consulta vacía o demasiado larga
+        }
+    }
+
+    // Obtener varios usuarios por id (?ids=1,2,3) en el orden pedido; los que no existen se listan en "missing"
+    @GetMapping(params = "ids")
+    public ResponseEntity<UserLookup> getUsersByIds(@RequestParam List<Long> ids) {
+        return lookup(ids);
+    }
+
+    // Variante con cuerpo para listas que no caben en la URL
+    @PostMapping("/lookup")
+    public ResponseEntity<UserLookup> lookupUsers(@RequestBody UserLookupRequest request) {
+        return lookup(request.ids());
+    }
+
+    private ResponseEntity<UserLookup> lookup(List<Long> ids) {
+        try {
+            return ResponseEntity.ok(userLookupService.lookup(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Lista ausente, con nulls o demasiado larga
+        }
+    }
+
+    // Totales, usuarios por rol y altas por día y por hora, de los contadores en memoria (sin consultar la base de datos)
+    @GetMapping("/stats")
+    public ResponseEntity<UserStats> getStats() {
+        return userStatistics.snapshot()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(503).build()); // Contadores aún no construidos
+    }
+
+    // Exportar todos los usuarios en NDJSON o CSV (solo ADMIN)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(required = false) String format,
+                                                             HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).build(); // Acceso prohibido
+        }
+        UserDataFormat exportFormat;
+        try {
+            exportFormat = UserDataFormat.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> userExportService.export(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + exportFormat.getExtension() + "\"")
+                .body(body);
     }
 
-    // Obtener un usuario por ID
+    // Importar usuarios en bloque desde NDJSON, array JSON o CSV (solo ADMIN)
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "application/json", "text/csv"})
+    public ResponseEntity<ImportResult> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                    InputStream body, HttpServletRequest request) throws IOException {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(403).build(); // Acceso prohibido
+        }
+        return ResponseEntity.ok(userImportService.importUsers(UserDataFormat.fromContentType(contentType), body));
+    }
+
+    // Obtener un usuario por ID; con If-None-Match vigente responde 304 sin cuerpo
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserResponse> getUserById(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         return userService.getUserById(id)
-                .map(ResponseEntity::ok)
+                .map(user -> conditionalResponse(user, ifNoneMatch))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // Crear un usuario con validación
     @PostMapping
-    public ResponseEntity<User> createUser(@Valid @RequestBody User user) {
-        return ResponseEntity.ok(userService.createUser(user));
+    public ResponseEntity<UserResponse> createUser(@Valid @RequestBody User user) {
+        return ResponseEntity.ok(UserResponse.from(userService.createUser(user)));
     }
 
     // Actualizar un usuario con validación
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @Valid @RequestBody User user) {
+    public ResponseEntity<UserResponse> updateUser(@PathVariable Long id, @Valid @RequestBody User user) {
         try {
-            return ResponseEntity.ok(userService.updateUser(id, user));
+            return ResponseEntity.ok(UserResponse.from(userService.updateUser(id, user)));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(409).build(); // Modificado por otra petición
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    // Actualizar solo los campos enviados; con "version" se rechaza (409) si el usuario cambió entretanto.
+    // Un ADMIN puede modificar a cualquiera; el resto solo a sí mismo y sin cambiar su rol
+    @PatchMapping("/{id}")
+    public ResponseEntity<UserResponse> patchUser(@PathVariable Long id, @Valid @RequestBody UserPatchRequest patch,
+                                                  HttpServletRequest request) {
+        Optional<AuthenticatedUser> current = authSessionManager.resolve(request);
+        if (current.isEmpty()) {
+            return ResponseEntity.status(401).build(); // No autenticado
+        }
+        if (!current.get().isAdmin() && (!id.equals(current.get().id()) || patch.role() != null)) {
+            return ResponseEntity.status(403).build(); // Acceso prohibido
+        }
+        return userService.patchUser(id, patch)
+                .map(UserResponse::from)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     // Obtener datos del usuario autenticado
     @GetMapping("/me")
-    public ResponseEntity<User> getAuthenticatedUser(HttpSession session) {
-        User user = (User) session.getAttribute("user");
-        if (user != null) {
-            return ResponseEntity.ok(user);
+    public ResponseEntity<UserResponse> getAuthenticatedUser(HttpServletRequest request,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<AuthenticatedUser> current = authSessionManager.resolve(request);
+        if (current.isPresent()) {
+            return userService.getUserById(current.get().id())
+                    .map(user -> conditionalResponse(user, ifNoneMatch))
+                    .orElse(ResponseEntity.status(401).build());
         }
         return ResponseEntity.status(401).build(); // No autenticado
     }
 
     // Eliminar un usuario solo si el rol es ADMIN
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id, HttpSession session) {
-        User user = (User) session.getAttribute("user");
-        if (user != null && "ADMIN".equals(user.getRole())) {
+    public ResponseEntity<Void> deleteUser(@PathVariable Long id, HttpServletRequest request) {
+        if (isAdmin(request)) {
             userService.deleteUser(id);
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.status(403).build(); // Acceso prohibido
     }
+
+    // El usuario se lee de la caché, así que un 304 normalmente no consulta la base de datos ni serializa nada
+    private static ResponseEntity<UserResponse> conditionalResponse(User user, String ifNoneMatch) {
+        if (user.getVersion() == null) {
+            return ResponseEntity.ok(UserResponse.from(user));
+        }
+        String etag = "\"" + user.getId() + "-" + user.getVersion() + "\"";
+        if (notModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(UserResponse.from(user));
+    }
+
+    // Huella de la consulta del listado: mismos valores efectivos (cursor vacío, tamaño acotado) dan la misma huella
+    static String queryHash(String cursor, Integer size, String role, LocalDateTime createdFrom, LocalDateTime createdTo) {
+        String query = String.join("\n",
+                cursor == null || cursor.isBlank() ? "" : cursor,
+                String.valueOf(UserService.pageSize(size)),
+                Objects.toString(role, ""),
+                Objects.toString(createdFrom, ""),
+                Objects.toString(createdTo, ""));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // If-None-Match admite "*" o una lista de etiquetas; la comparación es débil (se ignora el prefijo W/)
+    static boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAdmin(HttpServletRequest request) {
+        return authSessionManager.resolve(request).map(AuthenticatedUser::isAdmin).orElse(false);
+    }
 }
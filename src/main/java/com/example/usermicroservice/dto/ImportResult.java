@@ -0,0 +1,10 @@
+package com.example.usermicroservice.dto;
+
+import java.util.List;
+
+// Resultado de una importación masiva; errors se limita a las primeras filas fallidas
+public record ImportResult(long received, long imported, long failed, List<RowError> errors, boolean errorsTruncated) {
+
+    public record RowError(long row, String message) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.usermicroservice.dto;
+
+import com.example.usermicroservice.auth.AuthenticatedUser;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Respuesta de check-session: user si hay sesión activa, message en caso contrario
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SessionResponse(boolean authenticated, AuthenticatedUser user, String message) {
+
+    public static SessionResponse authenticated(AuthenticatedUser user) {
+        return new SessionResponse(true, user, null);
+    }
+
+    public static SessionResponse anonymous() {
+        return new SessionResponse(false, null, "No hay sesión activa");
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.usermicroservice.dto;
+
+import java.util.List;
+
+// Resultado de una búsqueda por ids: los usuarios encontrados en el orden pedido y los ids que no existen
+public record UserLookup(List<UserResponse> items, List<Long> missing) {
+}
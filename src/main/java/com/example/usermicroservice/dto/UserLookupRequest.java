@@ -0,0 +1,7 @@
+package com.example.usermicroservice.dto;
+
+import java.util.List;
+
+// Cuerpo de POST /api/users/lookup: ids a resolver, en el orden en que se quieren recibir
+public record UserLookupRequest(List<Long> ids) {
+}
@@ -0,0 +1,7 @@
+package com.example.usermicroservice.dto;
+
+import java.util.List;
+
+// Página de usuarios; nextCursor es null cuando no hay más resultados
+public record UserPage(List<UserResponse> items, String nextCursor) {
+}
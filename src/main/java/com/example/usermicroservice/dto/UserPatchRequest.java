@@ -0,0 +1,37 @@
+package com.example.usermicroservice.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Cuerpo de PATCH /api/users/{id}: los campos ausentes (null) no se modifican.
+// version es opcional; si se envía, la actualización falla con 409 cuando el usuario cambió entretanto.
+public record UserPatchRequest(
+        @Pattern(regexp = ".*\\S.*", message = "El nombre no puede estar vacío") String name,
+        @Email(message = "El correo debe ser válido")
+        @Pattern(regexp = ".*\\S.*", message = "El correo no puede estar vacío") String email,
+        @Pattern(regexp = ".*\\S.*", message = "El rol no puede estar vacío") String role,
+        @Size(max = 255, message = "La dirección no puede superar 255 caracteres") String direccion,
+        @Size(max = 20, message = "El teléfono no puede superar 20 caracteres") String telefono,
+        Long version) {
+
+    // Atributos de la entidad a modificar, en un orden estable
+    public Map<String, Object> changes() {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfPresent(changes, "name", name);
+        putIfPresent(changes, "email", email);
+        putIfPresent(changes, "role", role);
+        putIfPresent(changes, "direccion", direccion);
+        putIfPresent(changes, "telefono", telefono);
+        return changes;
+    }
+
+    private static void putIfPresent(Map<String, Object> changes, String attribute, Object value) {
+        if (value != null) {
+            changes.put(attribute, value);
+        }
+    }
+}
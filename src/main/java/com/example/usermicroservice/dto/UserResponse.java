@@ -0,0 +1,15 @@
+package com.example.usermicroservice.dto;
+
+import com.example.usermicroservice.entity.User;
+
+import java.time.LocalDateTime;
+
+// Datos públicos de un usuario: nunca incluye la contraseña
+public record UserResponse(Long id, String name, String email, String role, LocalDateTime createdAt,
+                           String direccion, String telefono, Long version) {
+
+    public static UserResponse from(User user) {
+        return new UserResponse(user.getId(), user.getName(), user.getEmail(), user.getRole(), user.getCreatedAt(),
+                user.getDireccion(), user.getTelefono(), user.getVersion());
+    }
+}
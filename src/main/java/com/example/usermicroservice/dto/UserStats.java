@@ -0,0 +1,12 @@
+package com.example.usermicroservice.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Respuesta de GET /api/users/stats. Las altas cuentan los usuarios que siguen existiendo, agrupados por su
+// fecha de alta; reconciledAt es la última comparación con la base de datos (null si aún no se hizo)
+public record UserStats(long total, Map<String, Long> byRole, Map<LocalDate, Long> signupsPerDay,
+                        Map<LocalDateTime, Long> signupsPerHour, Instant reconciledAt) {
+}
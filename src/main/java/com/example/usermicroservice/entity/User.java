@@ -3,18 +3,23 @@ package com.example.usermicroservice.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable; // Importar Serializable
 import java.time.LocalDateTime;
 
+// DynamicUpdate: los UPDATE incluyen solo las columnas modificadas
 @Entity
+@DynamicUpdate
 @Table(name = "users")
 public class User implements Serializable { // Implementar Serializable
 
     private static final long serialVersionUID = 1L; // Definir serialVersionUID
 
+    // Secuencia con optimizador "pooled": Hibernate reserva 50 ids por viaje y puede agrupar los INSERT en lotes
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre no puede estar vacío")
@@ -39,6 +44,10 @@ public class User implements Serializable { // Implementar Serializable
     @Column(name = "telefono", length = 20) // Nueva columna para el teléfono
     private String telefono;
 
+    // Control de concurrencia optimista: cada UPDATE incrementa la versión
+    @Version
+    private Long version;
+
     // Getters y Setters
     public Long getId() {
         return id;
@@ -103,4 +112,12 @@ public class User implements Serializable { // Implementar Serializable
     public void setTelefono(String telefono) {
         this.telefono = telefono;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
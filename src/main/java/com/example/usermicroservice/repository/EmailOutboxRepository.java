@@ -0,0 +1,42 @@
+package com.example.usermicroservice.repository;
+
+import com.example.usermicroservice.entity.EmailOutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // Mensajes cuyo próximo intento ya venció, bloqueados con FOR UPDATE SKIP LOCKED: otra instancia que
+    // despache a la vez se salta las filas bloqueadas. Sin LIMIT en la consulta (Oracle no admite FETCH FIRST
+    // con FOR UPDATE); Oracle bloquea las filas a medida que se leen, así que el llamador consume solo un lote.
+    // Debe consumirse dentro de una transacción
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints({
+            @QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100")
+    })
+    @Query("select m from EmailOutboxMessage m where m.nextAttemptAt <= :now order by m.id")
+    Stream<EmailOutboxMessage> streamDue(@Param("now") LocalDateTime now);
+
+    // Registra un intento fallido; nextAttemptAt null deja el mensaje retenido para revisión manual
+    @Modifying
+    @Query("update EmailOutboxMessage m set m.attempts = m.attempts + 1, m.nextAttemptAt = :nextAttemptAt,"
+            + " m.lastError = :lastError where m.id = :id")
+    int recordFailure(@Param("id") Long id,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError);
+
+    // Fecha del mensaje pendiente más antiguo (null si no hay), para medir el retraso del despacho
+    @Query("select min(m.createdAt) from EmailOutboxMessage m where m.nextAttemptAt is not null")
+    LocalDateTime findOldestPendingCreatedAt();
+}
@@ -0,0 +1,7 @@
+package com.example.usermicroservice.repository;
+
+import com.example.usermicroservice.entity.PasswordResetToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
+}
@@ -0,0 +1,66 @@
+package com.example.usermicroservice.repository;
+
+import java.util.function.Supplier;
+
+// Indica, por hilo, si las transacciones de solo lectura pueden ir a la réplica. Dentro de una petición
+// (ámbito abierto por ReadYourWritesFilter) la primera escritura fija el resto de la petición al primario
+// y avisa al filtro, que extiende la misma garantía a las siguientes peticiones de la sesión.
+// Sin réplica configurada no tiene ningún efecto.
+public final class ReadRouting {
+
+    private static final ThreadLocal<State> CURRENT = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static boolean readsFromPrimary() {
+        State state = CURRENT.get();
+        return state != null && (state.sessionPinned || state.wrote || state.primaryDepth > 0);
+    }
+
+    // Ejecuta la acción leyendo del primario aunque la transacción sea de solo lectura
+    public static <T> T onPrimary(Supplier<T> action) {
+        State current = CURRENT.get();
+        State state = current != null ? current : new State(false, null);
+        state.primaryDepth++;
+        CURRENT.set(state);
+        try {
+            return action.get();
+        } finally {
+            state.primaryDepth--;
+            if (current == null) {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    // Llamado por el DataSource al asignar una conexión a una transacción de escritura
+    public static void recordWrite() {
+        State state = CURRENT.get();
+        if (state != null && state.onFirstWrite != null && !state.wrote) {
+            state.wrote = true;
+            state.onFirstWrite.run();
+        }
+    }
+
+    // sessionPinned: la sesión escribió hace poco y debe leer del primario desde el principio
+    public static void beginRequest(boolean sessionPinned, Runnable onFirstWrite) {
+        CURRENT.set(new State(sessionPinned, onFirstWrite));
+    }
+
+    public static void endRequest() {
+        CURRENT.remove();
+    }
+
+    private static final class State {
+        private final boolean sessionPinned;
+        private final Runnable onFirstWrite;
+        private boolean wrote;
+        private int primaryDepth;
+
+        private State(boolean sessionPinned, Runnable onFirstWrite) {
+            this.sessionPinned = sessionPinned;
+            this.onFirstWrite = onFirstWrite;
+        }
+    }
+}
@@ -1,10 +1,127 @@
 package com.example.usermicroservice.repository;
 
+import com.example.usermicroservice.dto.UserResponse;
 import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.service.UserSnapshot;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+// Las consultas de lectura van en transacciones de solo lectura para que, con réplica, se lean de ella
+// (ReadReplicaConfig); las que preparan una escritura, como findExistingEmails, se quedan en el primario
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    @Transactional(readOnly = true)
     Optional<User> findByEmail(String email);
+
+    // Paginación por cursor (keyset) sobre el id: nunca se carga más de una página.
+    // Proyección a UserResponse: solo las columnas públicas, sin entidades gestionadas por el contexto
+    @Query("select new com.example.usermicroservice.dto.UserResponse(u.id, u.name, u.email, u.role, u.createdAt,"
+            + " u.direccion, u.telefono, u.version) from User u where u.id > :afterId"
+            + " and (:role is null or u.role = :role)"
+            + " and (:createdFrom is null or u.createdAt >= :createdFrom)"
+            + " and (:createdTo is null or u.createdAt < :createdTo)"
+            + " order by u.id")
+    @Transactional(readOnly = true)
+    List<UserResponse> findPageAfter(@Param("afterId") long afterId,
+                                     @Param("role") String role,
+                                     @Param("createdFrom") LocalDateTime createdFrom,
+                                     @Param("createdTo") LocalDateTime createdTo,
+                             Limit limit);
+
+    // Recorre toda la tabla en orden de id; debe consumirse dentro de una transacción
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
+
+    // Solo la columna email, para construir índices en memoria al arrancar
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
+    // Id, nombre, email, rol y fecha de alta, sin entidades gestionadas, para el índice de búsqueda y las estadísticas
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.example.usermicroservice.service.UserSnapshot(u.id, u.name, u.email, u.role, u.createdAt)"
+            + " from User u")
+    Stream<UserSnapshot> streamSnapshots();
+
+    // Usuarios de la lista de ids (máximo 1000 elementos), sin orden garantizado
+    @Query("select new com.example.usermicroservice.dto.UserResponse(u.id, u.name, u.email, u.role, u.createdAt,"
+            + " u.direccion, u.telefono, u.version) from User u where u.id in :ids")
+    @Transactional(readOnly = true)
+    List<UserResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Búsqueda por prefijo en la base de datos, usada mientras el índice en memoria no está construido.
+    // El prefijo debe venir en minúsculas y con los comodines escapados con '\'
+    @Query("select new com.example.usermicroservice.dto.UserResponse(u.id, u.name, u.email, u.role, u.createdAt,"
+            + " u.direccion, u.telefono, u.version) from User u"
+            + " where lower(u.email) like concat(:prefix, '%') escape '\\'"
+            + " or lower(u.name) like concat(:prefix, '%') escape '\\'"
+            + " order by u.id")
+    @Transactional(readOnly = true)
+    List<UserResponse> searchByPrefix(@Param("prefix") String prefix, Limit limit);
+
+    // Reemplaza solo el hash de la contraseña, sin leer la fila
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    // Emails de la lista que ya están registrados (máximo 1000 elementos por el límite de Oracle en IN)
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Recuentos agregados en la base de datos para conciliar las estadísticas en memoria (UserStatistics)
+    @Query("select u.role as role, count(u) as total from User u group by u.role")
+    @Transactional(readOnly = true)
+    List<RoleCount> countByRole();
+
+    // Altas por hora agrupadas en la base de datos: una fila por hora con altas, no una por usuario
+    @Query("select year(u.createdAt) as year, month(u.createdAt) as month, day(u.createdAt) as day,"
+            + " hour(u.createdAt) as hour, count(u) as total from User u where u.createdAt >= :since"
+            + " group by year(u.createdAt), month(u.createdAt), day(u.createdAt), hour(u.createdAt)")
+    @Transactional(readOnly = true)
+    List<HourCount> countSignupsPerHourSince(@Param("since") LocalDateTime since);
+
+    interface RoleCount {
+        String getRole();
+
+        long getTotal();
+    }
+
+    interface HourCount {
+        int getYear();
+
+        int getMonth();
+
+        int getDay();
+
+        int getHour();
+
+        long getTotal();
+
+        default LocalDateTime getHourStart() {
+            return LocalDateTime.of(getYear(), getMonth(), getDay(), getHour(), 0);
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.usermicroservice.repository;
+
+import java.util.Map;
+
+// Operaciones que Spring Data no puede derivar de una consulta fija
+public interface UserRepositoryCustom {
+
+    // Un único UPDATE que solo toca las columnas indicadas e incrementa la versión.
+    // Con expectedVersion no nulo solo actualiza si la versión coincide. Devuelve las filas afectadas.
+    int patch(Long id, Long expectedVersion, Map<String, Object> changes);
+}
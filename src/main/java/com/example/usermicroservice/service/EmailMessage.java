@@ -0,0 +1,5 @@
+package com.example.usermicroservice.service;
+
+// Correo listo para entregar; id es el del mensaje en la bandeja de salida y permite descartar reenvíos
+public record EmailMessage(Long id, String recipient, String subject, String body) {
+}
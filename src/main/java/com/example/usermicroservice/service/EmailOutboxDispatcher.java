@@ -0,0 +1,188 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.EmailOutboxMessage;
+import com.example.usermicroservice.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+// Vacía la tabla email_outbox en lotes: reclama los mensajes vencidos en una transacción corta, los entrega
+// fuera de ella y registra el resultado en otra. Si la instancia cae entre el envío y el registro, el mensaje
+// se reenvía al vencer la reserva (entrega "al menos una vez"; el id del mensaje permite descartar duplicados)
+@Component
+public class EmailOutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    // Oracle admite como máximo 1000 elementos en un IN
+    private static final int MAX_BATCH_SIZE = 1_000;
+    private static final int MAX_ERROR_LENGTH = 1_000;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailSender sender;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Clock clock;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter abandoned;
+    private final Timer lag;
+    private final Timer batchDuration;
+    // Fecha de creación del mensaje pendiente más antiguo según la última pasada (null si no había)
+    private final AtomicReference<LocalDateTime> oldestPending = new AtomicReference<>();
+
+    @Autowired
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 EmailSender sender,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${email.outbox.enabled:true}") boolean enabled,
+                                 @Value("${email.outbox.batch-size:100}") int batchSize,
+                                 @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${email.outbox.initial-backoff:PT10S}") Duration initialBackoff,
+                                 @Value("${email.outbox.max-backoff:PT30M}") Duration maxBackoff,
+                                 @Value("${email.outbox.lease:PT5M}") Duration lease) {
+        this(outboxRepository, sender, transactionManager, meterRegistry, enabled, batchSize, maxAttempts,
+                initialBackoff, maxBackoff, lease, Clock.systemDefaultZone());
+    }
+
+    EmailOutboxDispatcher(EmailOutboxRepository outboxRepository, EmailSender sender,
+                          PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                          boolean enabled, int batchSize, int maxAttempts, Duration initialBackoff,
+                          Duration maxBackoff, Duration lease, Clock clock) {
+        this.outboxRepository = outboxRepository;
+        this.sender = sender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.clock = clock;
+        this.sent = Counter.builder("email.outbox.deliveries").tag("outcome", "sent")
+                .description("Correos entregados").register(meterRegistry);
+        this.retried = Counter.builder("email.outbox.deliveries").tag("outcome", "retry")
+                .description("Envíos fallidos que se reintentarán").register(meterRegistry);
+        this.abandoned = Counter.builder("email.outbox.deliveries").tag("outcome", "abandoned")
+                .description("Correos retenidos tras agotar los reintentos").register(meterRegistry);
+        this.lag = Timer.builder("email.outbox.lag")
+                .description("Tiempo desde que se encola un correo hasta que se entrega").register(meterRegistry);
+        this.batchDuration = Timer.builder("email.outbox.batch")
+                .description("Duración de cada lote: reclamar, enviar y registrar").register(meterRegistry);
+        Gauge.builder("email.outbox.oldest.age", this, EmailOutboxDispatcher::oldestPendingAgeSeconds)
+                .baseUnit("seconds")
+                .description("Antigüedad del correo pendiente más antiguo").register(meterRegistry);
+    }
+
+    // Cada pasada despacha lotes mientras salgan completos, así un atasco se vacía sin esperar a la siguiente
+    @Scheduled(initialDelayString = "${email.outbox.initial-delay:PT5S}",
+            fixedDelayString = "${email.outbox.poll-interval:PT1S}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int claimed;
+            do {
+                claimed = dispatchBatch();
+            } while (claimed == batchSize);
+            oldestPending.set(outboxRepository.findOldestPendingCreatedAt());
+        } catch (RuntimeException e) {
+            // Base de datos no disponible: se reintenta en la siguiente pasada
+            log.warn("No se pudo despachar la bandeja de salida de correos: {}", e.getMessage());
+        }
+    }
+
+    // Reclama, entrega y registra un lote; devuelve cuántos mensajes reclamó
+    int dispatchBatch() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<EmailOutboxMessage> batch = transactionTemplate.execute(status -> {
+            try (Stream<EmailOutboxMessage> due = outboxRepository.streamDue(now)) {
+                List<EmailOutboxMessage> claimed = due.limit(batchSize).toList();
+                // La reserva evita que otra pasada u otra instancia los envíe mientras se entregan
+                claimed.forEach(message -> message.setNextAttemptAt(now.plus(lease)));
+                return claimed;
+            }
+        });
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> delivered = new ArrayList<>(batch.size());
+        Map<EmailOutboxMessage, RuntimeException> failures = new LinkedHashMap<>();
+        for (EmailOutboxMessage message : batch) {
+            try {
+                sender.send(new EmailMessage(message.getId(), message.getRecipient(), message.getSubject(), message.getBody()));
+                delivered.add(message.getId());
+                lag.record(Duration.between(message.getCreatedAt(), LocalDateTime.now(clock)));
+            } catch (RuntimeException e) {
+                failures.put(message, e);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                outboxRepository.deleteAllByIdInBatch(delivered);
+            }
+            failures.forEach((message, error) -> {
+                int attempts = message.getAttempts() + 1;
+                LocalDateTime nextAttemptAt = attempts >= maxAttempts ? null : now.plus(backoff(attempts));
+                outboxRepository.recordFailure(message.getId(), nextAttemptAt, describe(error));
+            });
+        });
+
+        sent.increment(delivered.size());
+        failures.forEach((message, error) -> {
+            if (message.getAttempts() + 1 >= maxAttempts) {
+                abandoned.increment();
+                log.error("Correo {} retenido tras {} intentos: {}", message.getId(), maxAttempts, error.getMessage());
+            } else {
+                retried.increment();
+            }
+        });
+        batchDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return batch.size();
+    }
+
+    // Espera exponencial: initialBackoff, 2x, 4x... hasta maxBackoff
+    Duration backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        Duration delay = initialBackoff.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private double oldestPendingAgeSeconds() {
+        LocalDateTime oldest = oldestPending.get();
+        return oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now(clock)).toMillis() / 1000.0);
+    }
+
+    private static String describe(RuntimeException error) {
+        String description = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return description.length() <= MAX_ERROR_LENGTH ? description : description.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.usermicroservice.service;
+
+// Entrega de correos usada por EmailOutboxDispatcher. Se elige con email.sender; una implementación SMTP
+// solo necesita lanzar una excepción cuando el envío falla para que el mensaje se reintente
+public interface EmailSender {
+
+    void send(EmailMessage message);
+}
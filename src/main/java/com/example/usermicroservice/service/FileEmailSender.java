@@ -0,0 +1,44 @@
+package com.example.usermicroservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Sustituto local del envío real: cada correo se escribe como un archivo .eml en email.file.directory.
+// El nombre usa el id del mensaje, así que un reenvío sobrescribe el archivo en lugar de duplicarlo
+@Component
+@ConditionalOnProperty(name = "email.sender", havingValue = "file", matchIfMissing = true)
+public class FileEmailSender implements EmailSender {
+
+    private final Path directory;
+
+    public FileEmailSender(@Value("${email.file.directory:${java.io.tmpdir}/usermicroservice-mail}") Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void send(EmailMessage message) {
+        String content = "To: " + message.recipient() + "\r\n"
+                + "Subject: " + message.subject() + "\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n"
+                + "\r\n"
+                + message.body() + "\r\n";
+        try {
+            Files.createDirectories(directory);
+            // Escritura en un temporal y renombrado: nunca queda un .eml a medio escribir
+            Path target = directory.resolve("message-" + message.id() + ".eml");
+            Path temp = Files.createTempFile(directory, "message-" + message.id(), ".tmp");
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.usermicroservice.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+// Sustituto en memoria para desarrollo y pruebas: conserva los últimos MAX_MESSAGES correos entregados
+@Component
+@ConditionalOnProperty(name = "email.sender", havingValue = "memory")
+public class InMemoryEmailSender implements EmailSender {
+    static final int MAX_MESSAGES = 1_000;
+
+    private final Deque<EmailMessage> messages = new ArrayDeque<>();
+
+    @Override
+    public synchronized void send(EmailMessage message) {
+        if (messages.size() == MAX_MESSAGES) {
+            messages.removeFirst();
+        }
+        messages.addLast(message);
+    }
+
+    public synchronized List<EmailMessage> sent() {
+        return List.copyOf(messages);
+    }
+}
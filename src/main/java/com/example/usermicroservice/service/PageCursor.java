@@ -0,0 +1,31 @@
+package com.example.usermicroservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Token opaco de continuación para la paginación por cursor
+public final class PageCursor {
+
+    private static final String PREFIX = "u1:";
+
+    private PageCursor() {
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Devuelve el último id entregado; lanza IllegalArgumentException si el token no es válido
+    public static long decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.usermicroservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Hashing de contraseñas con bcrypt en un ejecutor dedicado y acotado, para que una avalancha
+// de logins no consuma los hilos de Tomcat. Si la cola está llena se rechaza de inmediato.
+@Service
+public class PasswordHashingService {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+
+    public PasswordHashingService(@Value("${security.password.bcrypt-cost:10}") int cost,
+                                  @Value("${security.password.hash-threads:0}") int threads,
+                                  @Value("${security.password.queue-capacity:100}") int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        this.encoder = new BCryptPasswordEncoder(cost);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.hashTimer = latencyTimer(meterRegistry, "hash");
+        this.verifyTimer = latencyTimer(meterRegistry, "verify");
+        Gauge.builder("auth.password.queue.size", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public String hash(String rawPassword) {
+        return execute(hashTimer, () -> encoder.encode(rawPassword));
+    }
+
+    // Hash de un lote (importación masiva) en paralelo, con como mucho la mitad de los hilos del ejecutor
+    // ocupados a la vez para que los logins sigan teniendo hilos libres. Si la cola está llena, la contraseña
+    // se calcula en el hilo que llama: la importación se frena en lugar de fallar o de desplazar a los logins
+    public List<String> hashAll(List<String> rawPasswords) {
+        int window = Math.max(1, executor.getMaximumPoolSize() / 2);
+        List<Future<String>> hashes = new ArrayList<>(rawPasswords.size());
+        for (int i = 0; i < rawPasswords.size(); i++) {
+            if (i >= window) {
+                await(hashes.get(i - window));
+            }
+            String rawPassword = rawPasswords.get(i);
+            Callable<String> task = () -> hashTimer.recordCallable(() -> encoder.encode(rawPassword));
+            Future<String> hash;
+            try {
+                hash = executor.submit(task);
+            } catch (RejectedExecutionException e) {
+                hash = CompletableFuture.completedFuture(hashTimer.record(() -> encoder.encode(rawPassword)));
+            }
+            hashes.add(hash);
+        }
+        List<String> result = new ArrayList<>(hashes.size());
+        for (Future<String> hash : hashes) {
+            result.add(await(hash));
+        }
+        return result;
+    }
+
+    // Las contraseñas antiguas guardadas en texto plano se comparan en tiempo constante
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return false;
+        }
+        if (!isHashed(storedPassword)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return execute(verifyTimer, () -> encoder.matches(rawPassword, storedPassword));
+    }
+
+    // Texto plano o un coste inferior al configurado
+    public boolean needsRehash(String storedPassword) {
+        return !isHashed(storedPassword) || encoder.upgradeEncoding(storedPassword);
+    }
+
+    public boolean isHashed(String password) {
+        return password != null && BCRYPT_PATTERN.matcher(password).matches();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Timer timer, Callable<T> task) {
+        Future<T> result;
+        try {
+            result = executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingUnavailableException("Servicio de autenticación saturado", e);
+        }
+        return await(result);
+    }
+
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Hashing interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al procesar la contraseña", e.getCause());
+        }
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.latency")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
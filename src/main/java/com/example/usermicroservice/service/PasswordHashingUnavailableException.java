@@ -0,0 +1,9 @@
+package com.example.usermicroservice.service;
+
+// El ejecutor de hashing está saturado; la petición debe rechazarse rápido (503)
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    public PasswordHashingUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.EmailOutboxMessage;
+import com.example.usermicroservice.entity.PasswordResetToken;
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.EmailOutboxRepository;
+import com.example.usermicroservice.repository.PasswordResetTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+// Solicitudes de restablecimiento de contraseña. El token y el correo se guardan en la misma transacción
+// (patrón outbox): la petición no espera al envío, que hace EmailOutboxDispatcher en segundo plano,
+// y nunca queda un token sin correo ni un correo con un token que no llegó a guardarse
+@Service
+public class PasswordResetService {
+    static final String SUBJECT = "Restablecer tu contraseña";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final UserService userService;
+    private final PasswordResetTokenRepository tokenRepository;
+    private final EmailOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration tokenTtl;
+    private final String resetLink;
+
+    public PasswordResetService(UserService userService,
+                                PasswordResetTokenRepository tokenRepository,
+                                EmailOutboxRepository outboxRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${auth.password-reset.token-ttl:PT30M}") Duration tokenTtl,
+                                @Value("${auth.password-reset.link:http://localhost:4200/reset-password?token=}") String resetLink) {
+        this.userService = userService;
+        this.tokenRepository = tokenRepository;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tokenTtl = tokenTtl;
+        this.resetLink = resetLink;
+    }
+
+    // Genera el token y encola el correo; false si el email no está registrado
+    public boolean requestReset(String email) {
+        Optional<User> user = userService.findByEmail(email);
+        if (user.isEmpty()) {
+            return false;
+        }
+        String token = newToken();
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            tokenRepository.save(new PasswordResetToken(user.get().getId(), hash(token), now, now.plus(tokenTtl)));
+            outboxRepository.save(new EmailOutboxMessage(user.get().getEmail(), SUBJECT, body(user.get(), token), now));
+        });
+        return true;
+    }
+
+    // SHA-256 en hexadecimal: el token tiene 256 bits aleatorios, así que no hace falta sal ni un hash lento
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private String body(User user, String token) {
+        return "Hola " + user.getName() + ",\n\n"
+                + "Recibimos una solicitud para restablecer tu contraseña. Usa este enlace antes de "
+                + tokenTtl.toMinutes() + " minutos:\n\n"
+                + resetLink + token + "\n\n"
+                + "Si no la solicitaste, ignora este correo.";
+    }
+}
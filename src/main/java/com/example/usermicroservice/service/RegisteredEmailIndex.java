@@ -0,0 +1,166 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Índice probabilístico de emails registrados. Un "no" evita consultar la base de datos; un "sí" puede ser un
+// falso positivo y debe confirmarse con la consulta normal. El "no" solo es definitivo para lo que esta
+// instancia conoce (la última reconstrucción más sus propias escrituras), por eso solo se usa en la
+// comprobación de email libre del registro y nunca en login ni en la recuperación de contraseña.
+// Los eventos solo llegan de esta instancia y el filtro parte de una copia de la tabla, así que un borrado
+// solo resta lo que esta instancia sumó a ese mismo filtro: restar un email que vino en la copia (o que nunca
+// se sumó) bajaría contadores compartidos con otros emails y produciría falsos negativos.
+@Component
+public class RegisteredEmailIndex {
+    private static final Logger log = LoggerFactory.getLogger(RegisteredEmailIndex.class);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile Generation filter;
+    private volatile Generation building;
+    private volatile long lastBuildCount;
+
+    public RegisteredEmailIndex(UserRepository userRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${users.email-index.enabled:true}") boolean enabled,
+                                @Value("${users.email-index.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${users.email-index.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    // Mientras el índice no esté construido se responde siempre "puede existir"
+    public boolean mightExist(String email) {
+        if (email == null) {
+            return false;
+        }
+        Generation current = filter;
+        return current == null || current.filter.mightContain(UserCache.normalize(email));
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    // Construye el índice recorriendo la tabla al arrancar y lo reconstruye periódicamente,
+    // lo que también incorpora los emails registrados desde otras instancias
+    @Scheduled(initialDelayString = "${users.email-index.initial-delay:PT0S}",
+            fixedDelayString = "${users.email-index.rebuild-interval:PT15M}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Generation next = new Generation(
+                new CountingBloomFilter(Math.max(expectedInsertions, lastBuildCount * 2), falsePositiveRate));
+        building = next;
+        try {
+            AtomicLong count = new AtomicLong();
+            // Del primario: la réplica puede no tener aún escrituras cuyo evento ya pasó y que solo
+            // esta lectura incorporaría al nuevo índice
+            ReadRouting.onPrimary(() -> {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<String> emails = userRepository.streamAllEmails()) {
+                        emails.forEach(email -> {
+                            if (email != null) {
+                                next.filter.add(UserCache.normalize(email));
+                                count.incrementAndGet();
+                            }
+                        });
+                    }
+                });
+                return null;
+            });
+            filter = next;
+            lastBuildCount = count.get();
+            log.info("Índice de emails construido: {} emails, {} KB, {} ms", count.get(),
+                    next.filter.sizeInBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo construir el índice de emails; se consultará la base de datos", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        String previousEmail = event.previous() == null ? null : event.previous().email();
+        String currentEmail = event.current() == null ? null : event.current().email();
+        if (currentEmail != null && !currentEmail.equals(previousEmail)) {
+            add(currentEmail);
+        }
+        if (previousEmail != null && !previousEmail.equals(currentEmail)) {
+            remove(previousEmail);
+        }
+    }
+
+    // Sincronizados: el alta y la baja de un mismo email no deben cruzarse entre el conjunto y el filtro
+    private synchronized void add(String email) {
+        String key = UserCache.normalize(email);
+        Generation current = filter;
+        if (current != null) {
+            current.add(key);
+        }
+        Generation next = building;
+        if (next != null) {
+            next.add(key);
+        }
+    }
+
+    // Un email que esta instancia no sumó a un filtro sigue dando "puede existir" en él hasta la siguiente
+    // reconstrucción: solo cuesta un falso positivo
+    private synchronized void remove(String email) {
+        String key = UserCache.normalize(email);
+        Generation current = filter;
+        if (current != null) {
+            current.remove(key);
+        }
+        Generation next = building;
+        if (next != null) {
+            next.remove(key);
+        }
+    }
+
+    // Un filtro y los emails que esta instancia le sumó por eventos después de crearlo
+    private static final class Generation {
+        private final CountingBloomFilter filter;
+        private final Set<String> added = ConcurrentHashMap.newKeySet();
+
+        private Generation(CountingBloomFilter filter) {
+            this.filter = filter;
+        }
+
+        void add(String key) {
+            if (added.add(key)) {
+                filter.add(key);
+            }
+        }
+
+        void remove(String key) {
+            if (added.remove(key)) {
+                filter.remove(key);
+            }
+        }
+    }
+}
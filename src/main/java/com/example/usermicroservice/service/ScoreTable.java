@@ -0,0 +1,101 @@
+package com.example.usermicroservice.service;
+
+// Tabla hash de direccionamiento abierto id -> puntuación sin objetos por entrada, para acumular
+// los candidatos de una búsqueda sin crear un Long y un Integer por cada id. Las puntuaciones son
+// siempre positivas: 0 marca una posición libre.
+final class ScoreTable {
+
+    interface Consumer {
+        void accept(long id, int score);
+    }
+
+    private long[] ids;
+    private int[] scores;
+    private int size;
+
+    ScoreTable() {
+        this(64);
+    }
+
+    private ScoreTable(int capacity) {
+        ids = new long[capacity];
+        scores = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Puntuación del id, 0 si no está
+    int get(long id) {
+        int mask = ids.length - 1;
+        for (int slot = hash(id) & mask; scores[slot] != 0; slot = (slot + 1) & mask) {
+            if (ids[slot] == id) {
+                return scores[slot];
+            }
+        }
+        return 0;
+    }
+
+    // Guarda la mayor de la puntuación actual y la nueva
+    void max(long id, int score) {
+        int mask = ids.length - 1;
+        int slot = hash(id) & mask;
+        while (scores[slot] != 0) {
+            if (ids[slot] == id) {
+                scores[slot] = Math.max(scores[slot], score);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        scores[slot] = score;
+        if (++size * 2 > ids.length) {
+            resize();
+        }
+    }
+
+    // Ids presentes en ambas tablas, con la suma de sus puntuaciones
+    ScoreTable intersect(ScoreTable other) {
+        ScoreTable smaller = size <= other.size ? this : other;
+        ScoreTable larger = smaller == this ? other : this;
+        ScoreTable result = new ScoreTable();
+        smaller.forEach((id, score) -> {
+            int otherScore = larger.get(id);
+            if (otherScore != 0) {
+                result.max(id, score + otherScore);
+            }
+        });
+        return result;
+    }
+
+    void forEach(Consumer consumer) {
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (scores[slot] != 0) {
+                consumer.accept(ids[slot], scores[slot]);
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldIds = ids;
+        int[] oldScores = scores;
+        ids = new long[oldIds.length * 2];
+        scores = new int[oldScores.length * 2];
+        size = 0;
+        for (int slot = 0; slot < oldIds.length; slot++) {
+            if (oldScores[slot] != 0) {
+                max(oldIds[slot], oldScores[slot]);
+            }
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.usermicroservice.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Normalización y extracción de términos para la búsqueda de usuarios: minúsculas y sin tildes,
+// de modo que "Pérez" y "perez" producen el mismo término
+final class SearchTerms {
+    static final int MAX_QUERY_TOKENS = 5;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NAME_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern EMAIL_SEPARATORS = Pattern.compile("[._+\\-]+");
+
+    private SearchTerms() {
+    }
+
+    static String normalize(String value) {
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        if (lower.chars().allMatch(c -> c < 0x80)) {
+            return lower;
+        }
+        return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    // Términos indexados de un usuario: cada palabra del nombre, el email completo (que cubre
+    // las búsquedas por prefijo del email) y las partes del usuario del email después de la primera
+    static Set<String> of(String name, String email) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (name != null) {
+            for (String word : NAME_SEPARATORS.split(normalize(name))) {
+                if (!word.isEmpty()) {
+                    terms.add(word);
+                }
+            }
+        }
+        if (email != null && !email.isBlank()) {
+            String normalized = normalize(email);
+            terms.add(normalized);
+            int at = normalized.indexOf('@');
+            String[] parts = EMAIL_SEPARATORS.split(at < 0 ? normalized : normalized.substring(0, at));
+            for (int i = 1; i < parts.length; i++) {
+                if (!parts[i].isEmpty()) {
+                    terms.add(parts[i]);
+                }
+            }
+        }
+        return terms;
+    }
+
+    // La consulta se separa por espacios; cada token debe coincidir con algún término del usuario
+    static List<String> queryTokens(String query) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalize(query).split("\\s+")) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+                if (tokens.size() == MAX_QUERY_TOKENS) {
+                    break;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    // Variantes del token con un carácter menos: un término que empieza por alguna de ellas está a una
+    // edición de distancia del token (un carácter de más o cambiado en la consulta)
+    static List<String> deletions(String token) {
+        List<String> variants = new ArrayList<>(token.length());
+        for (int i = 0; i < token.length(); i++) {
+            String variant = token.substring(0, i) + token.substring(i + 1);
+            if (!variants.contains(variant)) {
+                variants.add(variant);
+            }
+        }
+        return variants;
+    }
+}
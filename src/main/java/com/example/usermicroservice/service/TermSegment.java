@@ -0,0 +1,185 @@
+package com.example.usermicroservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Diccionario inmutable de términos ordenados con la lista de ids de cada uno.
+// Los términos se guardan en UTF-8 en un único arreglo de bytes y los ids en un long[], sin un objeto
+// por entrada: con millones de usuarios el índice ocupa una fracción de lo que ocuparía un TreeMap.
+final class TermSegment {
+
+    interface Visitor {
+        // exact indica que el término es igual al prefijo; devuelve false para terminar el recorrido
+        boolean accept(boolean exact, long id);
+    }
+
+    private final byte[] termBytes;
+    private final int[] termOffsets;     // el término i ocupa termBytes[termOffsets[i], termOffsets[i + 1])
+    private final int[] postingOffsets;  // sus ids ocupan ids[postingOffsets[i], postingOffsets[i + 1])
+    private final long[] ids;
+
+    private TermSegment(byte[] termBytes, int[] termOffsets, int[] postingOffsets, long[] ids) {
+        this.termBytes = termBytes;
+        this.termOffsets = termOffsets;
+        this.postingOffsets = postingOffsets;
+        this.ids = ids;
+    }
+
+    int termCount() {
+        return termOffsets.length - 1;
+    }
+
+    int entryCount() {
+        return ids.length;
+    }
+
+    long sizeInBytes() {
+        return termBytes.length + 4L * termOffsets.length + 4L * postingOffsets.length + 8L * ids.length;
+    }
+
+    // Recorre en orden los términos que empiezan por el prefijo, sin decodificarlos;
+    // el término igual al prefijo, si existe, va primero
+    void scanPrefix(String prefix, Visitor visitor) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        for (int term = lowerBound(key); term < termCount() && startsWith(term, key); term++) {
+            boolean exact = termOffsets[term + 1] - termOffsets[term] == key.length;
+            for (int i = postingOffsets[term]; i < postingOffsets[term + 1]; i++) {
+                if (!visitor.accept(exact, ids[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Primer término mayor o igual que la clave
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = termCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(termBytes, termOffsets[mid], termOffsets[mid + 1], key, 0, key.length) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean startsWith(int term, byte[] key) {
+        int start = termOffsets[term];
+        return termOffsets[term + 1] - start >= key.length
+                && Arrays.equals(termBytes, start, start + key.length, key, 0, key.length);
+    }
+
+    // Ids bajo los términos que empiezan por el prefijo, contando varias veces a un usuario con varios de
+    // esos términos; sirve para estimar qué token de una consulta es más selectivo sin recorrer sus listas
+    int countPrefix(String prefix) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        int first = lowerBound(key);
+        // Los términos con el prefijo son contiguos desde first: se busca el primero que ya no lo tiene
+        int low = first;
+        int high = termCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startsWith(mid, key)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return postingOffsets[low] - postingOffsets[first];
+    }
+
+    // Acumula los pares (término, id) en dos arreglos primitivos paralelos, con un número por término
+    // distinto en lugar de un objeto por par. build() ordena solo los términos distintos y reparte los ids
+    // por término con un recuento (counting sort); después ordena y deduplica los ids de cada término.
+    static final class Builder {
+        private final Map<String, Integer> termNumbers = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+        private int[] entryTerms = new int[1024];
+        private long[] entryIds = new long[1024];
+        private int entries;
+
+        void add(String term, long id) {
+            Integer number = termNumbers.get(term);
+            if (number == null) {
+                number = terms.size();
+                termNumbers.put(term, number);
+                terms.add(term);
+            }
+            if (entries == entryIds.length) {
+                int capacity = entries + (entries >> 1);
+                entryTerms = Arrays.copyOf(entryTerms, capacity);
+                entryIds = Arrays.copyOf(entryIds, capacity);
+            }
+            entryTerms[entries] = number;
+            entryIds[entries] = id;
+            entries++;
+        }
+
+        TermSegment build() {
+            int termTotal = terms.size();
+            byte[][] encoded = new byte[termTotal][];
+            long bytes = 0;
+            for (int i = 0; i < termTotal; i++) {
+                encoded[i] = terms.get(i).getBytes(StandardCharsets.UTF_8);
+                bytes += encoded[i].length;
+            }
+            terms.clear();
+            termNumbers.clear();
+            Integer[] order = new Integer[termTotal];
+            Arrays.setAll(order, i -> i);
+            Arrays.parallelSort(order, (a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]));
+            int[] rank = new int[termTotal];
+            byte[] termBytes = new byte[Math.toIntExact(bytes)];
+            int[] termOffsets = new int[termTotal + 1];
+            int position = 0;
+            for (int i = 0; i < termTotal; i++) {
+                rank[order[i]] = i;
+                byte[] term = encoded[order[i]];
+                termOffsets[i] = position;
+                System.arraycopy(term, 0, termBytes, position, term.length);
+                position += term.length;
+            }
+            termOffsets[termTotal] = position;
+
+            // Reparto de los ids en el orden de los términos
+            int[] postingOffsets = new int[termTotal + 1];
+            for (int i = 0; i < entries; i++) {
+                postingOffsets[rank[entryTerms[i]] + 1]++;
+            }
+            for (int i = 0; i < termTotal; i++) {
+                postingOffsets[i + 1] += postingOffsets[i];
+            }
+            int[] next = Arrays.copyOf(postingOffsets, termTotal);
+            long[] ids = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                ids[next[rank[entryTerms[i]]]++] = entryIds[i];
+            }
+            entryTerms = new int[0];
+            entryIds = new long[0];
+            entries = 0;
+
+            // Ids de cada término ordenados y sin repetir (el mismo usuario con el término repetido)
+            int count = 0;
+            for (int term = 0; term < termTotal; term++) {
+                int from = postingOffsets[term];
+                int to = postingOffsets[term + 1];
+                Arrays.sort(ids, from, to);
+                postingOffsets[term] = count;
+                for (int i = from; i < to; i++) {
+                    if (i == from || ids[i] != ids[i - 1]) {
+                        ids[count++] = ids[i];
+                    }
+                }
+            }
+            postingOffsets[termTotal] = count;
+            return new TermSegment(termBytes, termOffsets, postingOffsets, count == ids.length ? ids : Arrays.copyOf(ids, count));
+        }
+    }
+}
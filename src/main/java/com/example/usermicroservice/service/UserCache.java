@@ -0,0 +1,227 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Caché de lectura de usuarios por id y por email normalizado, con expiración por tamaño y TTL.
+// Con réplica de lectura, un usuario modificado hace menos de recentWriteWindow se carga del primario:
+// una copia atrasada de la réplica quedaría en caché durante todo el TTL.
+// Las consultas simultáneas por la misma clave se agrupan en una sola carga. Cada escritura recibe un número
+// de secuencia: una carga que empezó antes de la última escritura del usuario no se guarda en caché ni se
+// comparte con quien llega después de ella
+@Component
+public class UserCache implements MeterBinder {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, User> usersById;
+    private final Cache<String, Long> idsByEmail;
+    private final Cache<Long, Boolean> recentWrites;
+    private final AtomicLong writeSequence = new AtomicLong();
+    // Secuencia de la última escritura de cada usuario; al descartar una entrada por tamaño su secuencia
+    // pasa a forgottenWrites y cualquier carga anterior a ella se trata como desactualizada
+    private final Cache<Long, Long> lastWrites;
+    private final AtomicLong forgottenWrites = new AtomicLong();
+    private final ConcurrentMap<LoadKey, Load> loads = new ConcurrentHashMap<>();
+    private final LongAdder executedLoads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+
+    public UserCache(UserRepository userRepository, long maximumSize, Duration ttl) {
+        this(userRepository, maximumSize, ttl, Duration.ofSeconds(5));
+    }
+
+    @Autowired
+    public UserCache(UserRepository userRepository,
+                     @Value("${users.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${users.cache.ttl:10m}") Duration ttl,
+                     @Value("${users.datasource.read-your-writes-window:PT5S}") Duration recentWriteWindow) {
+        this.userRepository = userRepository;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(recentWriteWindow)
+                .build();
+        this.lastWrites = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .<Long, Long>evictionListener((id, sequence, cause) ->
+                        forgottenWrites.accumulateAndGet(sequence, Math::max))
+                .build();
+    }
+
+    public Optional<User> findById(Long id) {
+        User cached = usersById.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return coalesce(id, () -> recentlyWritten(id)
+                ? ReadRouting.onPrimary(() -> userRepository.findById(id))
+                : userRepository.findById(id));
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        // El índice por email solo apunta al id; la entrada por id es la fuente de verdad
+        Long id = idsByEmail.getIfPresent(normalize(email));
+        if (id != null) {
+            User cached = usersById.getIfPresent(id);
+            if (cached != null && email.equals(cached.getEmail())) {
+                return Optional.of(cached);
+            }
+        }
+        // La consulta es exacta, así que la carga se agrupa por el email tal como llega
+        return coalesce(email, () -> {
+            Optional<User> user = id != null && recentlyWritten(id)
+                    ? ReadRouting.onPrimary(() -> userRepository.findByEmail(email))
+                    : userRepository.findByEmail(email);
+            // Si el email no estaba en caché el id solo se conoce tras la consulta
+            if (user.isPresent() && !Objects.equals(user.get().getId(), id) && recentlyWritten(user.get().getId())) {
+                user = ReadRouting.onPrimary(() -> userRepository.findByEmail(email));
+            }
+            return user;
+        });
+    }
+
+    // Entrada en caché, sin consultar la base de datos si no está
+    public Optional<User> peek(Long id) {
+        return Optional.ofNullable(usersById.getIfPresent(id));
+    }
+
+    // Invalida el usuario tras una escritura; las entradas por email que apunten a él dejan de ser válidas.
+    // La secuencia se registra dentro del compute de la clave para que no se cruce con el put de una carga
+    public void evict(Long id) {
+        if (id != null) {
+            long sequence = writeSequence.incrementAndGet();
+            usersById.asMap().compute(id, (key, cached) -> {
+                lastWrites.put(id, sequence);
+                return null;
+            });
+            recentWrites.put(id, Boolean.TRUE);
+            loads.remove(new LoadKey(id, false));
+            loads.remove(new LoadKey(id, true));
+        }
+    }
+
+    public CacheStats stats() {
+        return usersById.stats().plus(idsByEmail.stats());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, usersById, "users.byId");
+        CaffeineCacheMetrics.monitor(registry, idsByEmail, "users.byEmail");
+        FunctionCounter.builder("users.cache.loads", executedLoads, LongAdder::sum).tag("outcome", "executed")
+                .description("Cargas de la base de datos tras un fallo de caché").register(registry);
+        FunctionCounter.builder("users.cache.loads", coalescedLoads, LongAdder::sum).tag("outcome", "coalesced")
+                .description("Fallos de caché resueltos con una carga ya en curso").register(registry);
+    }
+
+    // Una sola carga por clave y por destino (primario o réplica): quien llega mientras hay una en curso espera
+    // su resultado, o su excepción. Solo se comparte si no hubo ninguna escritura desde que empezó; si la hubo,
+    // la carga nueva sustituye a la anterior, que termina solo para quienes ya la esperaban
+    private Optional<User> coalesce(Object key, Supplier<Optional<User>> loader) {
+        LoadKey loadKey = new LoadKey(key, ReadRouting.readsFromPrimary());
+        while (true) {
+            long sequence = writeSequence.get();
+            Load mine = new Load(sequence, new CompletableFuture<>());
+            Load existing = loads.putIfAbsent(loadKey, mine);
+            if (existing == null || (existing.sequence() != sequence && loads.replace(loadKey, existing, mine))) {
+                return load(loadKey, mine, loader);
+            }
+            if (existing.sequence() == sequence) {
+                coalescedLoads.increment();
+                return await(existing);
+            }
+        }
+    }
+
+    private Optional<User> load(LoadKey loadKey, Load mine, Supplier<Optional<User>> loader) {
+        executedLoads.increment();
+        try {
+            Optional<User> user = loader.get();
+            user.ifPresent(loaded -> putUnlessWrittenSince(loaded, mine.sequence()));
+            mine.result().complete(user);
+            return user;
+        } catch (RuntimeException | Error e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(loadKey, mine);
+        }
+    }
+
+    private static Optional<User> await(Load load) {
+        try {
+            return load.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean recentlyWritten(Long id) {
+        return id != null && recentWrites.getIfPresent(id) != null;
+    }
+
+    // Guarda el usuario salvo que se haya escrito después de que empezara la carga (sequence)
+    private void putUnlessWrittenSince(User user, long sequence) {
+        if (user.getId() == null) {
+            return;
+        }
+        User stored = usersById.asMap().compute(user.getId(), (id, cached) -> {
+            Long written = lastWrites.getIfPresent(id);
+            boolean stale = (written != null && written > sequence) || forgottenWrites.get() > sequence;
+            return stale ? cached : user;
+        });
+        if (stored == user && user.getEmail() != null) {
+            idsByEmail.put(normalize(user.getEmail()), user.getId());
+        }
+    }
+
+    private record LoadKey(Object key, boolean primary) {
+    }
+
+    private record Load(long sequence, CompletableFuture<Optional<User>> result) {
+    }
+
+    static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+// Últimos cambios de la tabla de usuarios en esta instancia, con offsets crecientes, en un búfer circular de
+// tamaño fijo. Los lectores llevan su propia posición y leen del búfer: uno lento no acumula memoria,
+// solo se queda atrás, y si el búfer lo adelanta su siguiente lectura lo indica (gap) para que resincronice.
+// Los offsets empiezan en 1 en cada arranque; epoch distingue los de distintos arranques.
+// Solo contiene las escrituras hechas a través de esta instancia: con varias instancias, un cliente suscrito
+// a una no ve lo escrito en las demás ni las importaciones de otros nodos
+@Component
+public class UserChangeFeed {
+
+    // user tiene la misma forma que UserResponse, con la versión para ordenar y descartar duplicados frente a
+    // las lecturas REST
+    public record Change(long offset, UserChangedEvent.ChangeType type, Long userId, UserResponse user, Instant at) {
+    }
+
+    // Cambios posteriores al offset pedido; gap indica que algunos ya no están en el búfer
+    public record Batch(List<Change> changes, boolean gap) {
+    }
+
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final Change[] buffer;
+    private final Set<Runnable> listeners = new CopyOnWriteArraySet<>();
+    // Offset del último cambio publicado; protegido por this junto con el búfer
+    private long latest;
+
+    public UserChangeFeed(@Value("${users.feed.buffer-size:10000}") int bufferSize) {
+        this.buffer = new Change[Math.max(1, bufferSize)];
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public synchronized long latestOffset() {
+        return latest;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        synchronized (this) {
+            latest++;
+            // En los borrados se publica el estado anterior: el receptor necesita al menos el id y el email
+            UserSnapshot user = event.current() != null ? event.current() : event.previous();
+            buffer[(int) (latest % buffer.length)] = new Change(latest, event.type(), event.userId(), response(user),
+                    Instant.now());
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    // Como mucho max cambios con offset mayor que after, en orden. Un offset futuro también es un gap
+    public synchronized Batch read(long after, int max) {
+        long oldest = Math.max(1, latest - buffer.length + 1);
+        if (after < oldest - 1 || after > latest) {
+            return new Batch(List.of(), true);
+        }
+        List<Change> changes = new ArrayList<>((int) Math.min(max, latest - after));
+        for (long offset = after + 1; offset <= latest && changes.size() < max; offset++) {
+            changes.add(buffer[(int) (offset % buffer.length)]);
+        }
+        return new Batch(changes, false);
+    }
+
+    private static UserResponse response(UserSnapshot user) {
+        return new UserResponse(user.id(), user.name(), user.email(), user.role(), user.createdAt(),
+                user.direccion(), user.telefono(), user.version());
+    }
+
+    // Se llama en el hilo que publica el cambio, así que no debe bloquear
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.usermicroservice.service;
+
+// Evento publicado por UserService después de cada escritura sobre la tabla de usuarios.
+// En las actualizaciones parciales previous es null si no se conoce con certeza el estado anterior.
+public record UserChangedEvent(ChangeType type, UserSnapshot previous, UserSnapshot current) {
+
+    public enum ChangeType { CREATED, UPDATED, DELETED }
+
+    public static UserChangedEvent created(UserSnapshot current) {
+        return new UserChangedEvent(ChangeType.CREATED, null, current);
+    }
+
+    public static UserChangedEvent updated(UserSnapshot previous, UserSnapshot current) {
+        return new UserChangedEvent(ChangeType.UPDATED, previous, current);
+    }
+
+    public static UserChangedEvent deleted(UserSnapshot previous) {
+        return new UserChangedEvent(ChangeType.DELETED, previous, null);
+    }
+
+    public Long userId() {
+        return current != null ? current.id() : previous.id();
+    }
+}
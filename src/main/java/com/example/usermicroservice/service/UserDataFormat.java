@@ -0,0 +1,44 @@
+package com.example.usermicroservice.service;
+
+// Formatos soportados por la exportación e importación masiva de usuarios
+public enum UserDataFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    UserDataFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    // Resuelve el formato desde el parámetro de la petición (ndjson por defecto)
+    public static UserDataFormat fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return NDJSON;
+        }
+        for (UserDataFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Formato no soportado: " + value);
+    }
+
+    // Resuelve el formato desde el Content-Type de la petición; JSON (array) se lee igual que NDJSON
+    public static UserDataFormat fromContentType(String contentType) {
+        if (contentType != null && contentType.toLowerCase().startsWith(CSV.contentType)) {
+            return CSV;
+        }
+        return NDJSON;
+    }
+}
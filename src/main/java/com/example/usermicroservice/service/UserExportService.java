@@ -0,0 +1,145 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Exporta la tabla de usuarios directamente al stream de salida con memoria constante
+@Service
+public class UserExportService {
+    private static final Logger log = LoggerFactory.getLogger(UserExportService.class);
+
+    // Cada cuántas filas se limpia el contexto de persistencia y se mide el heap
+    static final int CLEAR_INTERVAL = 1000;
+
+    private static final String CSV_HEADER = "id,name,email,role,created_at,direccion,telefono";
+
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public UserExportService(UserRepository userRepository, EntityManager entityManager) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+    }
+
+    // Escribe todos los usuarios (sin contraseña) y devuelve el número de filas exportadas
+    @Transactional(readOnly = true)
+    public long export(UserDataFormat format, OutputStream out) throws IOException {
+        ExportStats stats = new ExportStats();
+        try (Stream<User> users = userRepository.streamAll()) {
+            if (format == UserDataFormat.CSV) {
+                writeCsv(users.iterator(), out, stats);
+            } else {
+                writeNdjson(users.iterator(), out, stats);
+            }
+        }
+        stats.log(format);
+        return stats.rows;
+    }
+
+    private void writeNdjson(Iterator<User> users, OutputStream out, ExportStats stats) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        json.setRootValueSeparator(new SerializedString("\n"));
+        while (users.hasNext()) {
+            User user = users.next();
+            json.writeStartObject();
+            json.writeNumberField("id", user.getId());
+            json.writeStringField("name", user.getName());
+            json.writeStringField("email", user.getEmail());
+            json.writeStringField("role", user.getRole());
+            json.writeStringField("createdAt", user.getCreatedAt() == null ? null : user.getCreatedAt().toString());
+            json.writeStringField("direccion", user.getDireccion());
+            json.writeStringField("telefono", user.getTelefono());
+            json.writeEndObject();
+            release(user, stats);
+        }
+        json.writeRaw('\n');
+        json.flush();
+    }
+
+    private void writeCsv(Iterator<User> users, OutputStream out, ExportStats stats) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (users.hasNext()) {
+            User user = users.next();
+            writer.write(String.valueOf(user.getId()));
+            writeCsvField(writer, user.getName());
+            writeCsvField(writer, user.getEmail());
+            writeCsvField(writer, user.getRole());
+            writeCsvField(writer, user.getCreatedAt() == null ? null : user.getCreatedAt().toString());
+            writeCsvField(writer, user.getDireccion());
+            writeCsvField(writer, user.getTelefono());
+            writer.write('\n');
+            release(user, stats);
+        }
+        writer.flush();
+    }
+
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // Desvincula la entidad ya escrita para que el contexto de persistencia no crezca
+    private void release(User user, ExportStats stats) {
+        entityManager.detach(user);
+        stats.rows++;
+        if (stats.rows % CLEAR_INTERVAL == 0) {
+            entityManager.clear();
+            stats.sampleHeap();
+        }
+    }
+
+    private static final class ExportStats {
+        private final long startNanos = System.nanoTime();
+        private long rows;
+        private long peakHeapBytes = usedHeap();
+
+        void sampleHeap() {
+            peakHeapBytes = Math.max(peakHeapBytes, usedHeap());
+        }
+
+        void log(UserDataFormat format) {
+            sampleHeap();
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+            log.info("Exportación {} completada: {} filas en {} s ({} filas/s), heap máximo {} MB",
+                    format, rows, String.format("%.2f", seconds), Math.round(rows / seconds),
+                    peakHeapBytes / (1024 * 1024));
+        }
+
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
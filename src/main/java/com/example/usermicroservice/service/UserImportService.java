@@ -0,0 +1,272 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.ImportResult;
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Importación masiva de usuarios: lee el cuerpo en streaming, valida cada fila con las restricciones
+// de User e inserta por lotes JDBC, una transacción por lote. Las filas erróneas se informan sin abortar.
+@Service
+public class UserImportService {
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int IN_LIST_LIMIT = 1000;
+
+    private final EntityManager entityManager;
+    private final UserRepository userRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public UserImportService(EntityManager entityManager, UserRepository userRepository,
+                             PasswordHashingService passwordHashingService, Validator validator,
+                             ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${users.import.batch-size:1000}") int batchSize) {
+        this.entityManager = entityManager;
+        this.userRepository = userRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    public ImportResult importUsers(UserDataFormat format, InputStream in) throws IOException {
+        ImportState state = new ImportState();
+        if (format == UserDataFormat.CSV) {
+            readCsv(in, state);
+        } else {
+            readJson(in, state);
+        }
+        flush(state);
+        state.log(format);
+        return new ImportResult(state.received, state.imported, state.failed,
+                List.copyOf(state.errors), state.failed > state.errors.size());
+    }
+
+    private void readJson(InputStream in, ImportState state) throws IOException {
+        // readValues acepta tanto NDJSON como un array JSON en la raíz
+        try (MappingIterator<User> rows = objectMapper.readerFor(User.class).readValues(in)) {
+            while (true) {
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    long row = ++state.received;
+                    accept(row, rows.nextValue(), state);
+                } catch (JsonParseException e) {
+                    // JSON mal formado: no es posible continuar leyendo el flujo
+                    state.error(state.received, "JSON mal formado: " + e.getOriginalMessage());
+                    break;
+                } catch (JsonMappingException e) {
+                    state.error(state.received, "Fila inválida: " + e.getOriginalMessage());
+                }
+            }
+        }
+    }
+
+    private void readCsv(InputStream in, ImportState state) throws IOException {
+        try {
+            readCsvRecords(new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))), state);
+        } catch (CsvReader.MalformedCsvException e) {
+            // CSV mal formado: no es posible continuar leyendo el flujo; los lotes anteriores ya están confirmados,
+            // así que se informa como error de la fila que no se pudo leer y se devuelve el resultado parcial
+            state.error(++state.received, "CSV mal formado: " + e.getMessage());
+        }
+    }
+
+    private void readCsvRecords(CsvReader csv, ImportState state) throws IOException {
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            long row = ++state.received;
+            User user = new User();
+            user.setName(column(record, columns, "name"));
+            user.setEmail(column(record, columns, "email"));
+            user.setPassword(column(record, columns, "password"));
+            user.setRole(column(record, columns, "role"));
+            user.setDireccion(column(record, columns, "direccion"));
+            user.setTelefono(column(record, columns, "telefono"));
+            accept(row, user, state);
+        }
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+            return null;
+        }
+        return record.get(index);
+    }
+
+    private void accept(long row, User user, ImportState state) {
+        if (user == null) {
+            state.error(row, "Fila vacía");
+            return;
+        }
+        user.setId(null);
+        user.setVersion(null);
+        if (user.getCreatedAt() == null) {
+            user.setCreatedAt(LocalDateTime.now());
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            state.error(row, violations.stream().map(ConstraintViolation::getMessage).sorted()
+                    .collect(Collectors.joining("; ")));
+            return;
+        }
+        state.batch.add(new PendingRow(row, user));
+        if (state.batch.size() >= batchSize) {
+            flush(state);
+        }
+    }
+
+    private void flush(ImportState state) {
+        if (state.batch.isEmpty()) {
+            return;
+        }
+        List<PendingRow> rows = withoutDuplicateEmails(state);
+        // Las contraseñas que ya vienen como hash bcrypt se guardan tal cual; el resto del lote se calcula
+        // en paralelo antes de abrir la transacción
+        List<PendingRow> plaintext = rows.stream()
+                .filter(pending -> !passwordHashingService.isHashed(pending.user().getPassword()))
+                .toList();
+        List<String> hashes = passwordHashingService.hashAll(
+                plaintext.stream().map(pending -> pending.user().getPassword()).toList());
+        for (int i = 0; i < plaintext.size(); i++) {
+            plaintext.get(i).user().setPassword(hashes.get(i));
+        }
+        try {
+            insert(rows);
+            rows.forEach(pending -> published(pending, state));
+        } catch (RuntimeException batchFailure) {
+            // El lote se revirtió: se reintenta fila a fila para aislar las filas problemáticas
+            log.debug("Lote de importación fallido, reintentando fila a fila", batchFailure);
+            for (PendingRow pending : rows) {
+                pending.user().setId(null);
+                try {
+                    insert(List.of(pending));
+                    published(pending, state);
+                } catch (RuntimeException rowFailure) {
+                    pending.user().setId(null);
+                    state.error(pending.row(), "No se pudo guardar: " + rootMessage(rowFailure));
+                }
+            }
+        }
+        state.batch.clear();
+    }
+
+    private List<PendingRow> withoutDuplicateEmails(ImportState state) {
+        Set<String> existing = new HashSet<>();
+        List<String> emails = state.batch.stream().map(pending -> pending.user().getEmail()).toList();
+        for (int from = 0; from < emails.size(); from += IN_LIST_LIMIT) {
+            existing.addAll(userRepository.findExistingEmails(emails.subList(from, Math.min(from + IN_LIST_LIMIT, emails.size()))));
+        }
+        Set<String> seen = new HashSet<>();
+        List<PendingRow> rows = new ArrayList<>(state.batch.size());
+        for (PendingRow pending : state.batch) {
+            String email = pending.user().getEmail();
+            if (existing.contains(email) || !seen.add(email)) {
+                state.error(pending.row(), "El correo ya está registrado: " + email);
+            } else {
+                rows.add(pending);
+            }
+        }
+        return rows;
+    }
+
+    private void insert(List<PendingRow> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (PendingRow pending : rows) {
+                entityManager.persist(pending.user());
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private void published(PendingRow pending, ImportState state) {
+        state.imported++;
+        eventPublisher.publishEvent(UserChangedEvent.created(UserSnapshot.from(pending.user())));
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private record PendingRow(long row, User user) {
+    }
+
+    private static final class ImportState {
+        private final long startNanos = System.nanoTime();
+        private final List<PendingRow> batch = new ArrayList<>();
+        private final List<ImportResult.RowError> errors = new ArrayList<>();
+        private long received;
+        private long imported;
+        private long failed;
+
+        void error(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportResult.RowError(row, message));
+            }
+        }
+
+        void log(UserDataFormat format) {
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+            log.info("Importación {} completada: {} filas recibidas, {} insertadas, {} con error en {} s ({} filas/s)",
+                    format, received, imported, failed, String.format("%.2f", seconds), Math.round(imported / seconds));
+        }
+    }
+}
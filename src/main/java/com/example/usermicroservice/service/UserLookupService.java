@@ -0,0 +1,94 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserLookup;
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Resuelve muchos usuarios por id de una vez: primero la caché y el resto con consultas IN por bloques,
+// en lugar de una petición HTTP y una consulta por usuario
+@Service
+@Timed("users.service")
+public class UserLookupService {
+    public static final int MAX_IDS = 5_000;
+    // Oracle admite como máximo 1000 elementos en un IN
+    static final int CHUNK_SIZE = 1_000;
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final DistributionSummary requestSize;
+    private final Counter queries;
+    private final Counter fromCache;
+    private final Counter fromDatabase;
+    private final Counter missing;
+
+    public UserLookupService(UserRepository userRepository, UserCache userCache, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.requestSize = DistributionSummary.builder("users.lookup.size")
+                .description("Ids distintos por petición").register(meterRegistry);
+        this.queries = Counter.builder("users.lookup.queries")
+                .description("Consultas IN ejecutadas; ids por consulta = ids de la base de datos / consultas")
+                .register(meterRegistry);
+        this.fromCache = Counter.builder("users.lookup.ids").tag("source", "cache")
+                .description("Ids resueltos desde la caché").register(meterRegistry);
+        this.fromDatabase = Counter.builder("users.lookup.ids").tag("source", "database")
+                .description("Ids resueltos con una consulta").register(meterRegistry);
+        this.missing = Counter.builder("users.lookup.ids").tag("source", "missing")
+                .description("Ids que no existen").register(meterRegistry);
+    }
+
+    // Los ids repetidos se devuelven una vez, en la posición de su primera aparición.
+    // Lanza IllegalArgumentException si falta la lista, contiene null o supera MAX_IDS ids distintos
+    @Transactional(readOnly = true)
+    public UserLookup lookup(List<Long> ids) {
+        if (ids == null || ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Lista de ids inválida");
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > MAX_IDS) {
+            throw new IllegalArgumentException("Se pueden pedir como máximo " + MAX_IDS + " ids");
+        }
+        requestSize.record(requested.size());
+
+        Map<Long, UserResponse> found = new HashMap<>();
+        List<Long> pending = new ArrayList<>();
+        for (Long id : requested) {
+            userCache.peek(id).ifPresentOrElse(user -> found.put(id, UserResponse.from(user)), () -> pending.add(id));
+        }
+        int cached = found.size();
+        for (int start = 0; start < pending.size(); start += CHUNK_SIZE) {
+            List<Long> chunk = pending.subList(start, Math.min(start + CHUNK_SIZE, pending.size()));
+            userRepository.findResponsesByIdIn(chunk).forEach(row -> found.put(row.id(), row));
+            queries.increment();
+        }
+        fromCache.increment(cached);
+        fromDatabase.increment(found.size() - cached);
+
+        List<UserResponse> items = new ArrayList<>(found.size());
+        List<Long> absent = new ArrayList<>();
+        for (Long id : requested) {
+            UserResponse user = found.get(id);
+            if (user != null) {
+                items.add(user);
+            } else {
+                absent.add(id);
+            }
+        }
+        missing.increment(absent.size());
+        return new UserLookup(items, absent);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Índice en memoria para buscar usuarios por prefijo del nombre o del email, con tolerancia a un error de tipeo.
+// Se compone de un segmento inmutable construido periódicamente desde la tabla y de un delta con los usuarios
+// modificados desde esa construcción; para esos usuarios el segmento se ignora y manda el delta.
+@Component
+public class UserSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    // Puntuación de cada token de la consulta según cómo coincide con el término
+    static final int EXACT = 4;
+    static final int PREFIX = 2;
+    static final int FUZZY = 1;
+    // Los tokens cortos producen demasiados candidatos con un error de tipeo
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    public record Hit(long id, int score) {
+    }
+
+    // truncated indica que se agotó el presupuesto de candidatos y puede faltar algún usuario que coincide
+    public record Result(List<Hit> hits, boolean truncated) {
+    }
+
+    private record Change(Set<String> terms, long epoch) {
+    }
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxCandidates;
+
+    private volatile TermSegment segment;
+    private final AtomicLong epoch = new AtomicLong();
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Long>> changedTerms = new ConcurrentSkipListMap<>();
+
+    public UserSearchIndex(UserRepository userRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${users.search.enabled:true}") boolean enabled,
+                           @Value("${users.search.max-candidates:5000}") int maxCandidates) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+    }
+
+    public boolean isReady() {
+        return segment != null;
+    }
+
+    // Ids ordenados por relevancia (y por id a igual puntuación). Cada token de la consulta debe coincidir
+    // con algún término del usuario. Los tokens se recorren del más selectivo al menos: el primero puede
+    // aportar hasta maxCandidates usuarios y los siguientes solo se comprueban contra esos candidatos, así que
+    // el presupuesto no descarta coincidencias de un token que luego la intersección habría conservado
+    public Result search(String query, int limit) {
+        TermSegment current = segment;
+        List<String> tokens = SearchTerms.queryTokens(query);
+        if (current == null || tokens.isEmpty()) {
+            return new Result(List.of(), false);
+        }
+        tokens.sort(Comparator.comparingLong(token -> estimate(current, token)));
+        ScoreTable totals = null;
+        boolean truncated = false;
+        for (String token : tokens) {
+            Match match = new Match(totals);
+            match(current, token, limit, match);
+            truncated |= match.exhausted;
+            totals = totals == null ? match.scores : totals.intersect(match.scores);
+            if (totals.isEmpty()) {
+                return new Result(List.of(), truncated);
+            }
+        }
+        // Solo se ordenan los limit mejores: el montículo descarta el peor de los que ya tiene
+        Comparator<Hit> ranking = Comparator.comparingInt(Hit::score).reversed().thenComparingLong(Hit::id);
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        totals.forEach((id, score) -> {
+            best.add(new Hit(id, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(ranking);
+        return new Result(hits, truncated);
+    }
+
+    // Usuarios que coinciden por prefijo con el token en el segmento y en el delta, con repeticiones
+    private long estimate(TermSegment current, String token) {
+        long count = current.countPrefix(token);
+        for (Set<Long> ids : changedTerms.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+            count += ids.size();
+        }
+        return count;
+    }
+
+    // Coincidencias de un token. Sin candidatos (primer token) se guardan como máximo maxCandidates usuarios;
+    // con candidatos solo cuentan los que ya están entre ellos, que ya respetan el presupuesto
+    private final class Match {
+        private final ScoreTable candidates;
+        private final ScoreTable scores = new ScoreTable();
+        private boolean exhausted;
+
+        private Match(ScoreTable candidates) {
+            this.candidates = candidates;
+        }
+
+        // Devuelve false si se agotó el presupuesto y hay que dejar de buscar
+        boolean add(long id, int score) {
+            if (candidates != null) {
+                if (candidates.get(id) != 0) {
+                    scores.max(id, score);
+                }
+                return true;
+            }
+            if (scores.size() >= maxCandidates && scores.get(id) == 0) {
+                exhausted = true;
+                return false;
+            }
+            scores.max(id, score);
+            return true;
+        }
+
+        // Hay menos coincidencias de las que se pueden devolver: merece la pena buscar con un error de tipeo
+        boolean wantsMore(int limit) {
+            return !exhausted && scores.size() < limit && (candidates == null || scores.size() < candidates.size());
+        }
+    }
+
+    // Mejor puntuación de cada usuario para un token; la búsqueda con un error de tipeo solo se hace
+    // si no hay suficientes coincidencias por prefijo, y comparte con ella el presupuesto de candidatos
+    private void match(TermSegment current, String token, int limit, Match match) {
+        collect(current, token, match, EXACT, PREFIX);
+        if (match.wantsMore(limit) && token.length() >= MIN_FUZZY_LENGTH) {
+            for (String variant : SearchTerms.deletions(token)) {
+                if (!collect(current, variant, match, FUZZY, FUZZY)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Devuelve false si se agotó el presupuesto de candidatos
+    private boolean collect(TermSegment current, String prefix, Match match, int exactScore, int prefixScore) {
+        TermSegment.Visitor visitor = (exact, id) -> match.add(id, exact ? exactScore : prefixScore);
+        // Los usuarios modificados desde la construcción se toman solo del delta
+        current.scanPrefix(prefix, changes.isEmpty() ? visitor
+                : (exact, id) -> changes.containsKey(id) || visitor.accept(exact, id));
+        for (Map.Entry<String, Set<Long>> entry : changedTerms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+            boolean exact = entry.getKey().length() == prefix.length();
+            for (Long id : entry.getValue()) {
+                if (!visitor.accept(exact, id)) {
+                    return false;
+                }
+            }
+        }
+        return !match.exhausted;
+    }
+
+    // Construye el índice al arrancar y lo reconstruye periódicamente, lo que también incorpora
+    // los cambios hechos desde otras instancias
+    @Scheduled(initialDelayString = "${users.search.initial-delay:PT0S}",
+            fixedDelayString = "${users.search.rebuild-interval:PT30M}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Los cambios registrados antes de este punto ya están confirmados y los verá la lectura de la tabla
+        long buildEpoch = epoch.incrementAndGet();
+        try {
+            TermSegment.Builder builder = new TermSegment.Builder();
+            AtomicLong count = new AtomicLong();
+            // Del primario: al terminar se descarta el delta anterior a buildEpoch, que esta lectura debe
+            // contener, y una réplica atrasada podría no tenerlo todavía
+            ReadRouting.onPrimary(() -> {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<UserSnapshot> users = userRepository.streamSnapshots()) {
+                        users.forEach(user -> {
+                            for (String term : SearchTerms.of(user.name(), user.email())) {
+                                builder.add(term, user.id());
+                            }
+                            count.incrementAndGet();
+                        });
+                    }
+                });
+                return null;
+            });
+            TermSegment next = builder.build();
+            segment = next;
+            discardChangesBefore(buildEpoch);
+            log.info("Índice de búsqueda construido: {} usuarios, {} términos, {} MB, {} ms", count.get(),
+                    next.termCount(), next.sizeInBytes() / (1024 * 1024), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo construir el índice de búsqueda; se consultará la base de datos", e);
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        UserSnapshot current = event.current();
+        apply(event.userId(), current == null ? Set.of() : SearchTerms.of(current.name(), current.email()));
+    }
+
+    // Las modificaciones del delta se serializan; las búsquedas lo leen sin bloquear
+    private synchronized void apply(Long id, Set<String> terms) {
+        Change previous = changes.put(id, new Change(terms, epoch.get()));
+        if (previous != null) {
+            removeTerms(id, previous.terms());
+        }
+        for (String term : terms) {
+            changedTerms.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private synchronized void discardChangesBefore(long buildEpoch) {
+        List<Long> applied = new ArrayList<>();
+        changes.forEach((id, change) -> {
+            if (change.epoch() < buildEpoch) {
+                applied.add(id);
+            }
+        });
+        for (Long id : applied) {
+            removeTerms(id, changes.remove(id).terms());
+        }
+    }
+
+    private void removeTerms(Long id, Set<String> terms) {
+        for (String term : terms) {
+            Set<Long> ids = changedTerms.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    changedTerms.remove(term, ids);
+                }
+            }
+        }
+    }
+
+    int pendingChanges() {
+        return changes.size();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Búsqueda de usuarios por nombre o email: el índice en memoria decide qué usuarios y en qué orden,
+// y la base de datos solo se consulta para leer esas filas por id
+@Service
+@Timed("users.service")
+public class UserSearchService {
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+    public static final int MAX_QUERY_LENGTH = 100;
+
+    // truncated: el índice agotó su presupuesto de candidatos y puede faltar algún usuario que coincide
+    public record Result(List<UserResponse> users, boolean truncated) {
+    }
+
+    private final UserRepository userRepository;
+    private final UserSearchIndex searchIndex;
+
+    public UserSearchService(UserRepository userRepository, UserSearchIndex searchIndex) {
+        this.userRepository = userRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    // Lanza IllegalArgumentException si la consulta está vacía o es demasiado larga
+    public Result search(String query, Integer limit) {
+        if (query == null || query.isBlank() || query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Consulta de búsqueda inválida");
+        }
+        int max = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        if (!searchIndex.isReady()) {
+            // Mientras se construye el índice: prefijo del primer término, sin ranking ni tolerancia a errores
+            String prefix = query.trim().split("\\s+")[0].toLowerCase(Locale.ROOT);
+            return new Result(userRepository.searchByPrefix(escapeLike(prefix), Limit.of(max)), false);
+        }
+        UserSearchIndex.Result result = searchIndex.search(query, max);
+        List<UserSearchIndex.Hit> hits = result.hits();
+        if (hits.isEmpty()) {
+            return new Result(List.of(), result.truncated());
+        }
+        Map<Long, UserResponse> rows = userRepository.findResponsesByIdIn(hits.stream().map(UserSearchIndex.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(UserResponse::id, Function.identity()));
+        // Un usuario borrado desde otra instancia sigue en el índice hasta la próxima reconstrucción
+        List<UserResponse> users = hits.stream()
+                .map(hit -> rows.get(hit.id()))
+                .filter(Objects::nonNull)
+                .toList();
+        return new Result(users, result.truncated());
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
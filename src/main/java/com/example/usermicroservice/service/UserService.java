@@ -1,43 +1,164 @@
 package com.example.usermicroservice.service;
 
+import com.example.usermicroservice.dto.UserPage;
+import com.example.usermicroservice.dto.UserPatchRequest;
+import com.example.usermicroservice.dto.UserResponse;
 import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.ReadRouting;
 import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+// Cada método público registra el temporizador users.service con las etiquetas class y method
 @Service
+@Timed("users.service")
 public class UserService {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final RegisteredEmailIndex emailIndex;
+    private final PasswordHashingService passwordHashingService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserCache userCache, RegisteredEmailIndex emailIndex,
+                       PasswordHashingService passwordHashingService, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.emailIndex = emailIndex;
+        this.passwordHashingService = passwordHashingService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Obtiene una página de usuarios a partir del cursor, con filtros opcionales (de la réplica, si hay)
+    @Transactional(readOnly = true)
+    public UserPage getUsersPage(String cursor, Integer size, String role,
+                                 LocalDateTime createdFrom, LocalDateTime createdTo) {
+        int pageSize = pageSize(size);
+        long afterId = cursor == null || cursor.isBlank() ? 0L : PageCursor.decode(cursor);
+
+        // Se pide un registro extra para saber si existe una página siguiente
+        List<UserResponse> rows = userRepository.findPageAfter(afterId, role, createdFrom, createdTo, Limit.of(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new UserPage(rows, null);
+        }
+        List<UserResponse> items = rows.subList(0, pageSize);
+        return new UserPage(List.copyOf(items), PageCursor.encode(items.get(pageSize - 1).id()));
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    // Tamaño de página efectivo: por defecto si no se indica y siempre entre 1 y MAX_PAGE_SIZE
+    public static int pageSize(Integer size) {
+        return size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return userCache.findById(id);
+    }
+
+    // Siempre confirma contra la caché o la base de datos: el índice de emails es local a la instancia y no
+    // conoce los registros hechos en otras hasta su reconstrucción, así que login y recuperación no lo usan
+    public Optional<User> findByEmail(String email) {
+        return userCache.findByEmail(email);
+    }
+
+    // Comprobación previa al registro y de disponibilidad del email: si el índice descarta el email no se
+    // consulta la base de datos. Un registro reciente en otra instancia puede dar un falso "libre"; en ese caso
+    // la restricción única de la tabla rechaza el alta
+    public boolean isEmailRegistered(String email) {
+        return emailIndex.mightExist(email) && userCache.findByEmail(email).isPresent();
+    }
+
+    // Verifica las credenciales; si el hash guardado está desactualizado se recalcula de forma transparente
+    public Optional<User> authenticate(String email, String rawPassword) {
+        Optional<User> user = findByEmail(email);
+        if (user.isEmpty() || !passwordHashingService.matches(rawPassword, user.get().getPassword())) {
+            return Optional.empty();
+        }
+        if (passwordHashingService.needsRehash(user.get().getPassword())) {
+            userRepository.updatePassword(user.get().getId(), passwordHashingService.hash(rawPassword));
+            userCache.evict(user.get().getId());
+        }
+        return user;
     }
 
     public User createUser(User user) {
-        return userRepository.save(user);
+        user.setPassword(passwordHashingService.hash(user.getPassword()));
+        User saved = userRepository.save(user);
+        userCache.evict(saved.getId());
+        eventPublisher.publishEvent(UserChangedEvent.created(UserSnapshot.from(saved)));
+        return saved;
     }
 
+    // Las lecturas previas a una escritura van al primario: con una copia atrasada de la réplica
+    // la comprobación de versión fallaría o se perdería un cambio reciente
     public User updateUser(Long id, User updatedUser) {
-        return userRepository.findById(id).map(user -> {
+        return ReadRouting.onPrimary(() -> userRepository.findById(id)).map(user -> {
+            // Si el cliente envía la versión que leyó, se rechaza la escritura sobre datos más recientes
+            if (updatedUser.getVersion() != null && !updatedUser.getVersion().equals(user.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(User.class, id);
+            }
+            UserSnapshot previous = UserSnapshot.from(user);
             user.setName(updatedUser.getName());
             user.setEmail(updatedUser.getEmail());
-            user.setPassword(updatedUser.getPassword());
+            // Si el cliente reenvía el hash actual no se vuelve a calcular
+            if (updatedUser.getPassword() != null && !updatedUser.getPassword().equals(user.getPassword())) {
+                user.setPassword(passwordHashingService.hash(updatedUser.getPassword()));
+            }
             user.setRole(updatedUser.getRole());
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            userCache.evict(id);
+            eventPublisher.publishEvent(UserChangedEvent.updated(previous, UserSnapshot.from(saved)));
+            return saved;
         }).orElseThrow(() -> new RuntimeException("User not found"));
     }
 
+    // Actualiza los datos de perfil editables por el propio usuario (los valores null no se modifican)
+    public Optional<User> updateProfile(Long id, String name, String direccion, String telefono) {
+        return patchUser(id, new UserPatchRequest(name, null, null, direccion, telefono, null));
+    }
+
+    // Actualización parcial sin leer antes la fila: un único UPDATE con las columnas presentes.
+    // Con version lanza ObjectOptimisticLockingFailureException si el usuario cambió entretanto.
+    public Optional<User> patchUser(Long id, UserPatchRequest patch) {
+        Map<String, Object> changes = patch.changes();
+        if (changes.isEmpty()) {
+            return getUserById(id);
+        }
+        Optional<User> before = userCache.peek(id);
+        if (userRepository.patch(id, patch.version(), changes) == 0) {
+            if (patch.version() != null && ReadRouting.onPrimary(() -> userRepository.existsById(id))) {
+                throw new ObjectOptimisticLockingFailureException(User.class, id);
+            }
+            return Optional.empty();
+        }
+        userCache.evict(id);
+        Optional<User> current = userCache.findById(id);
+        current.ifPresent(user -> {
+            // La copia en caché solo es el estado anterior si su versión es exactamente la previa al UPDATE
+            UserSnapshot previous = before
+                    .filter(cached -> cached.getVersion() != null && user.getVersion() != null
+                            && cached.getVersion() == user.getVersion() - 1)
+                    .map(UserSnapshot::from)
+                    .orElse(null);
+            eventPublisher.publishEvent(UserChangedEvent.updated(previous, UserSnapshot.from(user)));
+        });
+        return current;
+    }
+
     public void deleteUser(Long id) {
+        Optional<User> existing = ReadRouting.onPrimary(() -> userRepository.findById(id));
         userRepository.deleteById(id);
+        userCache.evict(id);
+        existing.ifPresent(user -> eventPublisher.publishEvent(UserChangedEvent.deleted(UserSnapshot.from(user))));
     }
 }
@@ -0,0 +1,21 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.User;
+
+import java.time.LocalDateTime;
+
+// Copia inmutable de los datos de un usuario en un momento dado (sin contraseña). Los eventos llevan la fila
+// completa, con la versión; los recorridos de los índices solo leen las columnas que indexan
+public record UserSnapshot(Long id, String name, String email, String role, LocalDateTime createdAt,
+                           String direccion, String telefono, Long version) {
+
+    // Sin dirección, teléfono ni versión: la forma que usa UserRepository.streamSnapshots
+    public UserSnapshot(Long id, String name, String email, String role, LocalDateTime createdAt) {
+        this(id, name, email, role, createdAt, null, null, null);
+    }
+
+    public static UserSnapshot from(User user) {
+        return new UserSnapshot(user.getId(), user.getName(), user.getEmail(), user.getRole(), user.getCreatedAt(),
+                user.getDireccion(), user.getTelefono(), user.getVersion());
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserStats;
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Total de usuarios, usuarios por rol y altas por hora, en contadores en memoria. Se construyen recorriendo la
+// tabla una vez al arrancar y después se actualizan con cada UserChangedEvent; los contadores son LongAdder para
+// que las escrituras simultáneas no compitan. Cada reconcile-interval se comparan con recuentos agregados del
+// primario: la diferencia (escrituras de otras instancias, actualizaciones parciales sin estado anterior,
+// cambios cruzados con la construcción) se registra como desviación y se corrige
+@Component
+public class UserStatistics {
+    private static final Logger log = LoggerFactory.getLogger(UserStatistics.class);
+    private static final String NO_ROLE = "NONE";
+    // Horas incluidas en signupsPerHour; las altas por día cubren todo retentionDays
+    static final int HOURLY_WINDOW = 48;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final Clock clock;
+    private final Counter drift;
+    // Cambios aplicados; si varía durante la conciliación, la comparación no es fiable y se aplaza
+    private final LongAdder changes = new LongAdder();
+    private volatile Counts counts;
+    private volatile Instant reconciledAt;
+
+    @Autowired
+    public UserStatistics(UserRepository userRepository,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${users.stats.enabled:true}") boolean enabled,
+                          @Value("${users.stats.retention-days:30}") int retentionDays) {
+        this(userRepository, transactionManager, meterRegistry, enabled, retentionDays, Clock.systemDefaultZone());
+    }
+
+    UserStatistics(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                   MeterRegistry meterRegistry, boolean enabled, int retentionDays, Clock clock) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.clock = clock;
+        this.drift = Counter.builder("users.stats.drift")
+                .description("Conciliaciones en las que los contadores no coincidían con la base de datos")
+                .register(meterRegistry);
+    }
+
+    // Vacío mientras no se haya construido
+    public Optional<UserStats> snapshot() {
+        Counts current = counts;
+        if (current == null) {
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime firstHour = now.truncatedTo(ChronoUnit.HOURS).minusHours(HOURLY_WINDOW - 1L);
+        LocalDateTime since = retentionStart(now);
+        SortedMap<LocalDate, Long> perDay = new TreeMap<>();
+        SortedMap<LocalDateTime, Long> perHour = new TreeMap<>();
+        current.byHour.forEach((hour, count) -> {
+            long value = count.sum();
+            if (value <= 0 || hour.isBefore(since)) {
+                return;
+            }
+            perDay.merge(hour.toLocalDate(), value, Long::sum);
+            if (!hour.isBefore(firstHour)) {
+                perHour.put(hour, value);
+            }
+        });
+        return Optional.of(new UserStats(current.total.sum(), positive(current.byRole), perDay, perHour, reconciledAt));
+    }
+
+    // La primera pasada construye los contadores; las siguientes los concilian con la base de datos
+    @Scheduled(initialDelayString = "${users.stats.initial-delay:PT0S}",
+            fixedDelayString = "${users.stats.reconcile-interval:PT10M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (counts == null) {
+                build();
+            } else {
+                reconcile();
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron actualizar las estadísticas de usuarios: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        Counts current = counts;
+        if (current == null) {
+            return;
+        }
+        UserSnapshot previous = event.previous();
+        UserSnapshot updated = event.current();
+        switch (event.type()) {
+            case CREATED -> {
+                current.total.increment();
+                current.role(updated.role()).increment();
+                current.signup(updated.createdAt(), 1, retentionStart(LocalDateTime.now(clock)));
+            }
+            case UPDATED -> {
+                // Sin estado anterior no se sabe si cambió el rol: lo corrige la siguiente conciliación
+                if (previous != null && !roleKey(previous.role()).equals(roleKey(updated.role()))) {
+                    current.role(previous.role()).decrement();
+                    current.role(updated.role()).increment();
+                }
+            }
+            case DELETED -> {
+                current.total.decrement();
+                current.role(previous.role()).decrement();
+                current.signup(previous.createdAt(), -1, retentionStart(LocalDateTime.now(clock)));
+            }
+        }
+        changes.increment();
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        LocalDateTime since = retentionStart(LocalDateTime.now(clock));
+        Counts next = new Counts();
+        // Del primario, como las reconstrucciones de los índices: con la réplica atrasada la base faltaría
+        // a las altas recientes, cuyos eventos llegaron antes de que existieran los contadores
+        ReadRouting.onPrimary(() -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<UserSnapshot> users = userRepository.streamSnapshots()) {
+                    users.forEach(user -> {
+                        next.total.increment();
+                        next.role(user.role()).increment();
+                        next.signup(user.createdAt(), 1, since);
+                    });
+                }
+            });
+            return null;
+        });
+        counts = next;
+        log.info("Estadísticas de usuarios construidas: {} usuarios, {} ms", next.total.sum(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Suma a los contadores la diferencia con la base de datos, sin reemplazarlos: así no se pierden
+    // los cambios que lleguen mientras tanto
+    void reconcile() {
+        Counts current = counts;
+        LocalDateTime since = retentionStart(LocalDateTime.now(clock));
+        long changesBefore = changes.sum();
+        // Del primario: con la réplica atrasada toda escritura reciente parecería una desviación
+        List<UserRepository.RoleCount> roles = ReadRouting.onPrimary(userRepository::countByRole);
+        List<UserRepository.HourCount> signups = ReadRouting.onPrimary(() -> userRepository.countSignupsPerHourSince(since));
+        if (changes.sum() != changesBefore) {
+            log.debug("Conciliación de estadísticas aplazada: hubo escrituras durante las consultas");
+            return;
+        }
+
+        Map<String, Long> expectedRoles = new HashMap<>();
+        roles.forEach(row -> expectedRoles.merge(roleKey(row.getRole()), row.getTotal(), Long::sum));
+        Map<LocalDateTime, Long> expectedHours = new HashMap<>();
+        signups.forEach(row -> expectedHours.merge(row.getHourStart(), row.getTotal(), Long::sum));
+        long expectedTotal = expectedRoles.values().stream().mapToLong(Long::longValue).sum();
+
+        long totalDrift = expectedTotal - current.total.sum();
+        long roleDrift = correct(current.byRole, expectedRoles, key -> true);
+        long hourDrift = correct(current.byHour, expectedHours, hour -> !hour.isBefore(since));
+        current.byHour.keySet().removeIf(hour -> hour.isBefore(since));
+        if (totalDrift != 0 || roleDrift != 0 || hourDrift != 0) {
+            current.total.add(totalDrift);
+            drift.increment();
+            log.warn("Estadísticas de usuarios desviadas y corregidas: total {}, roles {}, altas {}",
+                    totalDrift, roleDrift, hourDrift);
+        }
+        reconciledAt = Instant.now(clock);
+    }
+
+    // Ajusta cada contador al valor esperado; devuelve la suma de las diferencias absolutas
+    private static <K> long correct(ConcurrentMap<K, LongAdder> actual, Map<K, Long> expected,
+                                    Predicate<K> inScope) {
+        Set<K> keys = new HashSet<>(expected.keySet());
+        actual.keySet().stream().filter(inScope).forEach(keys::add);
+        long total = 0;
+        for (K key : keys) {
+            LongAdder counter = actual.computeIfAbsent(key, k -> new LongAdder());
+            long difference = expected.getOrDefault(key, 0L) - counter.sum();
+            if (difference != 0) {
+                counter.add(difference);
+                total += Math.abs(difference);
+            }
+        }
+        return total;
+    }
+
+    private LocalDateTime retentionStart(LocalDateTime now) {
+        return now.toLocalDate().minusDays(retentionDays - 1L).atStartOfDay();
+    }
+
+    private static SortedMap<String, Long> positive(Map<String, LongAdder> counters) {
+        SortedMap<String, Long> values = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long value = counter.sum();
+            if (value > 0) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    private static String roleKey(String role) {
+        return role == null ? NO_ROLE : role;
+    }
+
+    private static final class Counts {
+        private final LongAdder total = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> byRole = new ConcurrentHashMap<>();
+        // Altas por hora dentro del periodo de retención
+        private final ConcurrentMap<LocalDateTime, LongAdder> byHour = new ConcurrentHashMap<>();
+
+        LongAdder role(String role) {
+            return counter(byRole, roleKey(role));
+        }
+
+        void signup(LocalDateTime createdAt, long delta, LocalDateTime since) {
+            if (createdAt != null && !createdAt.isBefore(since)) {
+                counter(byHour, createdAt.truncatedTo(ChronoUnit.HOURS)).add(delta);
+            }
+        }
+
+        // get antes de computeIfAbsent: en el caso habitual la clave ya existe y no se bloquea
+        private static <K> LongAdder counter(ConcurrentMap<K, LongAdder> counters, K key) {
+            LongAdder counter = counters.get(key);
+            return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.usermicroservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Contador de cambios de la tabla de usuarios en esta instancia, usado como ETag de los listados.
+// Las escrituras hechas por otras instancias no llegan como eventos; para acotar cuánto tiempo puede
+// responderse 304 con datos desactualizados, la etiqueta cambia también cada maxStaleness.
+@Component
+public class UserTableVersion {
+
+    private final AtomicLong changes = new AtomicLong();
+    // Distingue los contadores de distintos arranques, que empiezan todos en 0
+    private final String instance = UUID.randomUUID().toString().substring(0, 8);
+    private final long maxStalenessMillis;
+    private final LongSupplier clock;
+
+    @Autowired
+    public UserTableVersion(@Value("${users.etag.list-max-staleness:PT1M}") Duration maxStaleness) {
+        this(maxStaleness, System::currentTimeMillis);
+    }
+
+    UserTableVersion(Duration maxStaleness, LongSupplier clock) {
+        this.maxStalenessMillis = Math.max(1, maxStaleness.toMillis());
+        this.clock = clock;
+    }
+
+    // Debe leerse antes de consultar la base de datos: si una escritura se cruza con la consulta,
+    // la etiqueta queda más antigua que los datos y la siguiente petición recibe 200, nunca un 304 incorrecto
+    public String tag() {
+        return instance + "-" + changes.get() + "-" + clock.getAsLong() / maxStalenessMillis;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        changes.incrementAndGet();
+    }
+}
@@ -0,0 +1,50 @@
+-- Cambios de esquema en Oracle para la versión actual del servicio.
+-- Con spring.jpa.hibernate.ddl-auto=none Hibernate no crea ni modifica tablas: este script se ejecuta a mano
+-- (SQL*Plus / SQLcl) una sola vez, antes de desplegar. No está en la raíz del classpath para que Spring no
+-- lo ejecute contra la H2 de los tests.
+
+-- users.version: bloqueo optimista de PATCH /api/users/{id} (@Version en User)
+ALTER TABLE users ADD (version NUMBER(19) DEFAULT 0 NOT NULL);
+
+-- users_seq: ids con optimizador "pooled" (allocationSize = 50), sustituye a la columna IDENTITY.
+-- El incremento tiene que coincidir con allocationSize y empezar por encima del mayor id existente.
+ALTER TABLE users MODIFY (id DROP IDENTITY);
+
+DECLARE
+    next_id NUMBER(19);
+BEGIN
+    SELECT NVL(MAX(id), 0) + 1 INTO next_id FROM users;
+    EXECUTE IMMEDIATE 'CREATE SEQUENCE users_seq START WITH ' || next_id || ' INCREMENT BY 50';
+END;
+/
+
+-- Bandeja de salida de correos (EmailOutboxMessage)
+CREATE SEQUENCE email_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE email_outbox (
+    id              NUMBER(19)          NOT NULL,
+    recipient       VARCHAR2(255 CHAR)  NOT NULL,
+    subject         VARCHAR2(255 CHAR)  NOT NULL,
+    body            VARCHAR2(4000 CHAR) NOT NULL,
+    created_at      TIMESTAMP(6)        NOT NULL,
+    next_attempt_at TIMESTAMP(6),
+    attempts        NUMBER(10)          NOT NULL,
+    last_error      VARCHAR2(1000 CHAR),
+    CONSTRAINT email_outbox_pk PRIMARY KEY (id)
+);
+
+CREATE INDEX email_outbox_next_attempt_idx ON email_outbox (next_attempt_at);
+
+-- Tokens de restablecimiento de contraseña (PasswordResetToken): solo se guarda el hash del token
+CREATE SEQUENCE password_reset_tokens_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE password_reset_tokens (
+    id         NUMBER(19)        NOT NULL,
+    user_id    NUMBER(19)        NOT NULL,
+    token_hash VARCHAR2(64 CHAR) NOT NULL,
+    created_at TIMESTAMP(6)      NOT NULL,
+    expires_at TIMESTAMP(6)      NOT NULL,
+    used_at    TIMESTAMP(6),
+    CONSTRAINT password_reset_tokens_pk PRIMARY KEY (id),
+    CONSTRAINT password_reset_tokens_hash_uk UNIQUE (token_hash)
+);
@@ -0,0 +1,68 @@
+package com.example.usermicroservice;
+
+import com.example.usermicroservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.security.user.password=secreto-de-prueba"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsEndpointTest {
+    private static final String MANAGEMENT_CREDENTIALS = "Basic " + Base64.getEncoder()
+            .encodeToString("actuator:secreto-de-prueba".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void testPrometheusExposesEndpointServiceAndRepositoryTimers() throws Exception {
+        // Arrange
+        mockMvc.perform(get("/api/users/{id}", 42)).andExpect(status().isNotFound());
+        userService.getUsersPage(null, null, null, null, null);
+
+        // Act & Assert
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, MANAGEMENT_CREDENTIALS))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+                .andExpect(content().string(containsString("uri=\"/api/users/{id}\"")))
+                .andExpect(content().string(containsString("users_service_seconds_count{")))
+                .andExpect(content().string(containsString("method=\"getUsersPage\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket{")))
+                .andExpect(content().string(containsString("hikaricp_connections_active{")))
+                .andExpect(content().string(containsString("auth_login_total{")));
+    }
+
+    @Test
+    void testOnlyHealthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, "Basic "
+                + Base64.getEncoder().encodeToString("actuator:otra".getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isUnauthorized());
+    }
+}
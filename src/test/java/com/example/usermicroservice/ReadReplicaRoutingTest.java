@@ -0,0 +1,92 @@
+package com.example.usermicroservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Primario y réplica en dos bases H2 distintas y sin replicación entre ellas: lo que se lee de la réplica
+// no incluye lo escrito en el primario, lo que deja ver a dónde fue cada consulta
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "users.datasource.replica.enabled=true",
+        "users.datasource.replica.url=jdbc:h2:mem:replica-routing-replica;DB_CLOSE_DELAY=-1",
+        "users.datasource.replica.username=sa",
+        "users.email-index.enabled=false",
+        "users.search.enabled=false",
+        "email.outbox.enabled=false",
+        "auth.rate-limit.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void createReplicaSchema() {
+        new JdbcTemplate(replicaDataSource).execute("create table if not exists users (id bigint primary key,"
+                + " name varchar(255), email varchar(255), password varchar(255), role varchar(255),"
+                + " created_at timestamp(6), direccion varchar(255), telefono varchar(20), version bigint)");
+    }
+
+    @Test
+    void testSessionReadsItsOwnWritesFromPrimary() throws Exception {
+        // Arrange: el registro escribe en el primario y deja la cookie
+        MvcResult registered = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ana\",\"email\":\"ana.replica@example.com\",\"password\":\"secreta123\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Cookie pinned = registered.getResponse().getCookie("read-primary-until");
+        assertNotNull(pinned);
+
+        // Act & Assert: con la cookie el listado se lee del primario; sin ella, de la réplica (vacía)
+        mockMvc.perform(get("/api/users").cookie(pinned))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)));
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)));
+    }
+
+    @Test
+    void testPoolMetricsPerRoute() throws Exception {
+        // Arrange
+        mockMvc.perform(get("/api/users")).andExpect(status().isOk());
+
+        // Assert
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").tag("pool", "primary").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.active").tag("pool", "replica").gauge());
+        assertNotNull(meterRegistry.find("datasource.routing.connections").tag("route", "replica").counter());
+    }
+}
@@ -1,17 +1,31 @@
 package com.example.usermicroservice.auth;
 
+import com.example.usermicroservice.dto.SessionResponse;
+import com.example.usermicroservice.entity.EmailOutboxMessage;
 import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.EmailOutboxRepository;
+import com.example.usermicroservice.repository.PasswordResetTokenRepository;
 import com.example.usermicroservice.repository.UserRepository;
+import com.example.usermicroservice.service.PasswordHashingService;
+import com.example.usermicroservice.service.PasswordResetService;
+import com.example.usermicroservice.service.RegisteredEmailIndex;
+import com.example.usermicroservice.service.UserCache;
+import com.example.usermicroservice.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.validation.BindingResult;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -24,18 +38,45 @@ class AuthControllerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PasswordResetTokenRepository tokenRepository;
+
+    @Mock
+    private EmailOutboxRepository outboxRepository;
+
     @Mock
     private HttpSession session;
 
     @Mock
     private BindingResult bindingResult;
 
-    @InjectMocks
+    private MockHttpServletRequest request;
+
+    private JwtService jwtService;
+
+    private PasswordHashingService passwordHashingService;
+
+    private PasswordResetService passwordResetService;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private AuthController authController;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        request = new MockHttpServletRequest();
+        request.setSession(session);
+        jwtService = new JwtService("0123456789abcdef0123456789abcdef", 60_000);
+        passwordHashingService = new PasswordHashingService(4, 2, 10, new SimpleMeterRegistry());
+        RegisteredEmailIndex emailIndex = new RegisteredEmailIndex(userRepository, mock(PlatformTransactionManager.class), true, 1000, 0.01);
+        UserService userService = new UserService(userRepository, new UserCache(userRepository, 100, Duration.ofMinutes(1)),
+                emailIndex, passwordHashingService, event -> { });
+        passwordResetService = new PasswordResetService(userService, tokenRepository, outboxRepository,
+                mock(PlatformTransactionManager.class), Duration.ofMinutes(30), "http://localhost:4200/reset-password?token=");
+        meterRegistry = new SimpleMeterRegistry();
+        authController = new AuthController(userService, passwordResetService, new AuthSessionManager(jwtService, "session"),
+                meterRegistry);
     }
 
     @Test
@@ -53,12 +94,55 @@ class AuthControllerTest {
 
         when(userRepository.findByEmail(email)).thenReturn(Optional.of(mockUser));
 
-        ResponseEntity<Map<String, String>> response = authController.login(loginRequest, session);
+        ResponseEntity<Map<String, String>> response = authController.login(loginRequest, request);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Login exitoso", response.getBody().get("message"));
         assertEquals("USER", response.getBody().get("role"));
-        verify(session).setAttribute("user", mockUser);
+        verify(session).setAttribute("user", AuthenticatedUser.from(mockUser));
+        // La contraseña en texto plano se migra a bcrypt en el primer login
+        verify(userRepository).updatePassword(eq(mockUser.getId()), argThat(passwordHashingService::isHashed));
+        assertEquals(1.0, meterRegistry.get("auth.login").tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    void testLogin_HashedPassword() {
+        String email = "test@example.com";
+        User mockUser = new User();
+        mockUser.setId(3L);
+        mockUser.setEmail(email);
+        mockUser.setPassword(passwordHashingService.hash("password123"));
+        mockUser.setRole("USER");
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(mockUser));
+
+        AuthController.LoginRequest loginRequest = new AuthController.LoginRequest();
+        loginRequest.setEmail(email);
+        loginRequest.setPassword("password123");
+
+        ResponseEntity<Map<String, String>> response = authController.login(loginRequest, request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(userRepository, never()).updatePassword(anyLong(), anyString());
+    }
+
+    @Test
+    void testLogin_WrongPassword() {
+        String email = "test@example.com";
+        User mockUser = new User();
+        mockUser.setEmail(email);
+        mockUser.setPassword(passwordHashingService.hash("password123"));
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(mockUser));
+
+        AuthController.LoginRequest loginRequest = new AuthController.LoginRequest();
+        loginRequest.setEmail(email);
+        loginRequest.setPassword("wrongPassword");
+
+        ResponseEntity<Map<String, String>> response = authController.login(loginRequest, request);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        verify(session, never()).setAttribute(anyString(), any());
+        assertEquals(1.0, meterRegistry.get("auth.login").tag("outcome", "failure").counter().count());
+        assertEquals(0.0, meterRegistry.get("auth.login").tag("outcome", "success").counter().count());
     }
 
     @Test
@@ -72,7 +156,7 @@ class AuthControllerTest {
 
         when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
 
-        ResponseEntity<Map<String, String>> response = authController.login(loginRequest, session);
+        ResponseEntity<Map<String, String>> response = authController.login(loginRequest, request);
 
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
         assertEquals("Credenciales incorrectas", response.getBody().get("message"));
@@ -88,29 +172,44 @@ class AuthControllerTest {
 
         when(session.getAttribute("user")).thenReturn(mockUser);
 
-        ResponseEntity<Map<String, Object>> response = authController.checkSession(session);
+        ResponseEntity<SessionResponse> response = authController.checkSession(request);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertTrue((Boolean) response.getBody().get("authenticated"));
-        Map<String, Object> user = (Map<String, Object>) response.getBody().get("user");
-        assertEquals("John Doe", user.get("name"));
-        assertEquals("test@example.com", user.get("email"));
+        assertTrue(response.getBody().authenticated());
+        assertEquals(new AuthenticatedUser(1L, "John Doe", "test@example.com", "USER"), response.getBody().user());
+        assertNull(response.getBody().message());
+    }
+
+    @Test
+    void testCheckSession_JsonShape() throws Exception {
+        User mockUser = new User();
+        mockUser.setId(1L);
+        mockUser.setName("John Doe");
+        mockUser.setEmail("test@example.com");
+        mockUser.setRole("USER");
+        when(session.getAttribute("user")).thenReturn(mockUser);
+
+        String json = new ObjectMapper().writeValueAsString(authController.checkSession(request).getBody());
+
+        assertEquals("{\"authenticated\":true,\"user\":{\"id\":1,\"name\":\"John Doe\","
+                + "\"email\":\"test@example.com\",\"role\":\"USER\"}}", json);
     }
 
     @Test
     void testCheckSession_InvalidSession() {
         when(session.getAttribute("user")).thenReturn(null);
 
-        ResponseEntity<Map<String, Object>> response = authController.checkSession(session);
+        ResponseEntity<SessionResponse> response = authController.checkSession(request);
 
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
-        assertFalse((Boolean) response.getBody().get("authenticated"));
-        assertEquals("No hay sesión activa", response.getBody().get("message"));
+        assertFalse(response.getBody().authenticated());
+        assertNull(response.getBody().user());
+        assertEquals("No hay sesión activa", response.getBody().message());
     }
 
     @Test
     void testLogout() {
-        ResponseEntity<Map<String, String>> response = authController.logout(session);
+        ResponseEntity<Map<String, String>> response = authController.logout(request);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Sesión cerrada", response.getBody().get("message"));
@@ -126,12 +225,14 @@ class AuthControllerTest {
 
         when(bindingResult.hasErrors()).thenReturn(false);
         when(userRepository.findByEmail(registerRequest.getEmail())).thenReturn(Optional.empty());
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         ResponseEntity<Map<String, String>> response = authController.register(registerRequest, bindingResult);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Usuario registrado con éxito", response.getBody().get("message"));
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).save(argThat(user -> passwordHashingService.matches("password123", user.getPassword())
+                && passwordHashingService.isHashed(user.getPassword())));
     }
 
     @Test
@@ -150,6 +251,24 @@ class AuthControllerTest {
         assertEquals("El correo ya está registrado.", response.getBody().get("message"));
     }
 
+    @Test
+    void testRegister_DuplicateRejectedByDatabase() {
+        // El índice local aún no conoce un registro hecho en otra instancia: responde la restricción única
+        AuthController.RegisterRequest registerRequest = new AuthController.RegisterRequest();
+        registerRequest.setName("John Doe");
+        registerRequest.setEmail("test@example.com");
+        registerRequest.setPassword("password123");
+
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(userRepository.findByEmail(registerRequest.getEmail())).thenReturn(Optional.empty());
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("UK_USERS_EMAIL"));
+
+        ResponseEntity<Map<String, String>> response = authController.register(registerRequest, bindingResult);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El correo ya está registrado.", response.getBody().get("message"));
+    }
+
     @Test
     void testRegister_ValidationError() {
         AuthController.RegisterRequest registerRequest = new AuthController.RegisterRequest();
@@ -173,7 +292,10 @@ class AuthControllerTest {
     @Test
     void testForgotPassword_EmailExists() {
         String email = "test@example.com";
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(new User()));
+        User user = new User();
+        user.setId(1L);
+        user.setEmail(email);
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
 
         Map<String, String> request = new HashMap<>();
         request.put("email", email);
@@ -182,6 +304,8 @@ class AuthControllerTest {
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Se ha enviado un correo para restablecer tu contraseña.", response.getBody().get("message"));
+        // El correo queda en la bandeja de salida; el despachador lo envía después
+        verify(outboxRepository).save(argThat((EmailOutboxMessage message) -> message.getRecipient().equals(email)));
     }
 
     @Test
@@ -196,5 +320,109 @@ class AuthControllerTest {
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertEquals("El correo no está registrado.", response.getBody().get("message"));
+        verifyNoInteractions(tokenRepository, outboxRepository);
+    }
+
+    @Test
+    void testUpdateUser_Successful() {
+        User currentUser = new User();
+        currentUser.setId(1L);
+        User updatedUser = new User();
+        updatedUser.setId(1L);
+        updatedUser.setName("Jane Doe");
+        when(session.getAttribute("user")).thenReturn(currentUser);
+        when(userRepository.patch(1L, null, Map.of("name", "Jane Doe", "direccion", "Calle 123", "telefono", "555-1234")))
+                .thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(updatedUser));
+
+        AuthController.UpdateUserRequest updateRequest = new AuthController.UpdateUserRequest();
+        updateRequest.setName("Jane Doe");
+        updateRequest.setDireccion("Calle 123");
+        updateRequest.setTelefono("555-1234");
+
+        ResponseEntity<Map<String, String>> response = authController.updateUser(updateRequest, request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        // Un único UPDATE, sin leer antes la fila ni guardar la entidad completa
+        verify(userRepository, never()).save(any(User.class));
+        verify(session).setAttribute("user", AuthenticatedUser.from(updatedUser));
+    }
+
+    @Test
+    void testUpdateUser_NullFieldsAreUnchanged() {
+        User currentUser = new User();
+        currentUser.setId(1L);
+        User updatedUser = new User();
+        updatedUser.setId(1L);
+        updatedUser.setName("Jane Doe");
+        updatedUser.setDireccion("Calle 1");
+        when(session.getAttribute("user")).thenReturn(currentUser);
+        when(userRepository.patch(1L, null, Map.of("name", "Jane Doe"))).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(updatedUser));
+
+        // Solo el nombre: dirección y teléfono ausentes no se borran
+        AuthController.UpdateUserRequest updateRequest = new AuthController.UpdateUserRequest();
+        updateRequest.setName("Jane Doe");
+
+        ResponseEntity<Map<String, String>> response = authController.updateUser(updateRequest, request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(userRepository).patch(1L, null, Map.of("name", "Jane Doe"));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testUpdateUser_NoSession() {
+        when(session.getAttribute("user")).thenReturn(null);
+
+        ResponseEntity<Map<String, String>> response = authController.updateUser(new AuthController.UpdateUserRequest(), request);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testEmailExists_Registered() {
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(new User()));
+
+        ResponseEntity<Void> response = authController.emailExists("test@example.com");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void testEmailExists_NotRegistered() {
+        when(userRepository.findByEmail("nonexistent@example.com")).thenReturn(Optional.empty());
+
+        ResponseEntity<Void> response = authController.emailExists("nonexistent@example.com");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testLogin_StatelessIssuesToken() {
+        User mockUser = new User();
+        mockUser.setId(7L);
+        mockUser.setEmail("test@example.com");
+        mockUser.setPassword("password123");
+        mockUser.setRole("ADMIN");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        RegisteredEmailIndex emailIndex = new RegisteredEmailIndex(userRepository, mock(PlatformTransactionManager.class), true, 1000, 0.01);
+        UserService userService = new UserService(userRepository, new UserCache(userRepository, 100, Duration.ofMinutes(1)),
+                emailIndex, passwordHashingService, event -> { });
+        AuthController statelessController = new AuthController(userService, passwordResetService,
+                new AuthSessionManager(jwtService, "jwt"), meterRegistry);
+
+        AuthController.LoginRequest loginRequest = new AuthController.LoginRequest();
+        loginRequest.setEmail("test@example.com");
+        loginRequest.setPassword("password123");
+
+        ResponseEntity<Map<String, String>> response = statelessController.login(loginRequest, request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        AuthenticatedUser principal = jwtService.parse(response.getBody().get("token")).orElseThrow();
+        assertEquals(7L, principal.id());
+        assertEquals("ADMIN", principal.role());
+        verify(session, never()).setAttribute(anyString(), any());
     }
 }
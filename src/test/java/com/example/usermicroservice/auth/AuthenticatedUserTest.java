@@ -0,0 +1,77 @@
+package com.example.usermicroservice.auth;
+
+import com.example.usermicroservice.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthenticatedUserTest {
+
+    @Test
+    void testSerializationRoundTrip() throws Exception {
+        // Arrange
+        AuthenticatedUser user = new AuthenticatedUser(42L, "José Pérez", "jose@example.com", "ADMIN");
+
+        // Act
+        Object restored = deserialize(serialize(user));
+
+        // Assert
+        assertEquals(user, restored);
+    }
+
+    @Test
+    void testSerializationRoundTripWithNulls() throws Exception {
+        // Arrange
+        AuthenticatedUser user = new AuthenticatedUser(null, null, "jose@example.com", null);
+
+        // Act
+        Object restored = deserialize(serialize(user));
+
+        // Assert
+        assertEquals(user, restored);
+    }
+
+    @Test
+    void testSerializedFormIsSmallerThanEntity() throws Exception {
+        // Arrange
+        User entity = new User();
+        entity.setId(42L);
+        entity.setName("José Pérez");
+        entity.setEmail("jose@example.com");
+        entity.setPassword("$2a$10$abcdefghijklmnopqrstuu5p0uVPRg7ZnEI7Q2TJIvBqNqa2PYWv6");
+        entity.setRole("ADMIN");
+        entity.setCreatedAt(LocalDateTime.of(2024, 1, 1, 10, 0));
+        entity.setDireccion("Calle 123");
+        entity.setTelefono("555-1234");
+        entity.setVersion(3L);
+
+        // Act
+        int entityBytes = serialize(entity).length;
+        int principalBytes = serialize(AuthenticatedUser.from(entity)).length;
+
+        // Assert
+        assertTrue(principalBytes * 3 < entityBytes,
+                "principal=" + principalBytes + " bytes, entidad=" + entityBytes + " bytes");
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.usermicroservice.auth;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthenticationFilterTest {
+
+    private final JwtService jwtService = new JwtService("0123456789abcdef0123456789abcdef", 60_000);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService);
+    private final AuthSessionManager authSessionManager = new AuthSessionManager(jwtService, "jwt");
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testValidTokenAuthenticatesRequest() throws Exception {
+        // Arrange
+        AuthenticatedUser user = new AuthenticatedUser(1L, "John Doe", "john@example.com", "ADMIN");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtService.issue(user));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertEquals(Optional.of(user), authSessionManager.resolve(request));
+        assertNull(request.getSession(false), "El modo jwt no debe crear sesiones");
+    }
+
+    @Test
+    void testMissingTokenLeavesRequestAnonymous() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer invalid");
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert
+        assertTrue(authSessionManager.resolve(request).isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.usermicroservice.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    @Test
+    void testIssueAndParse() {
+        // Arrange
+        JwtService jwtService = new JwtService(SECRET, 60_000);
+        AuthenticatedUser user = new AuthenticatedUser(1L, "John Doe", "john@example.com", "USER");
+
+        // Act
+        Optional<AuthenticatedUser> parsed = jwtService.parse(jwtService.issue(user));
+
+        // Assert
+        assertEquals(Optional.of(user), parsed);
+    }
+
+    @Test
+    void testParseRejectsTamperedToken() {
+        // Arrange
+        JwtService jwtService = new JwtService(SECRET, 60_000);
+        JwtService otherService = new JwtService("fedcba9876543210fedcba9876543210", 60_000);
+        String token = otherService.issue(new AuthenticatedUser(1L, "John Doe", "john@example.com", "ADMIN"));
+
+        // Act & Assert
+        assertTrue(jwtService.parse(token).isEmpty());
+        assertTrue(jwtService.parse("not-a-token").isEmpty());
+    }
+
+    @Test
+    void testParseRejectsExpiredToken() {
+        // Arrange
+        JwtService jwtService = new JwtService(SECRET, -1_000);
+        String token = jwtService.issue(new AuthenticatedUser(1L, "John Doe", "john@example.com", "USER"));
+
+        // Act & Assert
+        assertTrue(jwtService.parse(token).isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.usermicroservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthRateLimitFilterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private AuthRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new AuthRateLimitFilter(List.of(
+                new AuthRateLimitFilter.EndpointRule("/api/auth/login", "login",
+                        RateLimit.parse("3/1m"), RateLimit.parse("2/1m"))),
+                1000, new ObjectMapper(), meterRegistry, now::get);
+    }
+
+    @Test
+    void testRejectsPerEmailBeforeReachingController() throws Exception {
+        // Arrange
+        List<String> bodies = new ArrayList<>();
+        FilterChain controller = (request, response) ->
+                bodies.add(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+
+        // Act
+        MockHttpServletResponse first = login("10.0.0.1", "victim@example.com", controller);
+        MockHttpServletResponse second = login("10.0.0.2", "VICTIM@example.com ", controller);
+        MockHttpServletResponse third = login("10.0.0.3", "victim@example.com", controller);
+
+        // Assert
+        assertEquals(200, first.getStatus());
+        assertEquals(200, second.getStatus());
+        assertEquals(429, third.getStatus());
+        assertEquals("30", third.getHeader("Retry-After"));
+        assertEquals(2, bodies.size(), "El cuerpo llega intacto al controlador y el rechazo no lo invoca");
+        assertTrue(bodies.get(0).contains("victim@example.com"));
+        assertEquals(1.0, meterRegistry.get("auth.rate_limit.rejected")
+                .tag("endpoint", "login").tag("key", "email").counter().count());
+    }
+
+    @Test
+    void testRejectsPerIp() throws Exception {
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, login("10.0.0.1", "user" + i + "@example.com", new MockFilterChain()).getStatus());
+        }
+        MockHttpServletResponse rejected = login("10.0.0.1", "other@example.com", new MockFilterChain());
+
+        // Assert
+        assertEquals(429, rejected.getStatus());
+        assertEquals(1.0, meterRegistry.get("auth.rate_limit.rejected")
+                .tag("endpoint", "login").tag("key", "ip").counter().count());
+    }
+
+    @Test
+    void testIgnoresOtherEndpoints() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/logout");
+
+        // Act & Assert
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    private MockHttpServletResponse login(String ip, String email, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(("{\"email\":\"" + email + "\",\"password\":\"x\"}").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
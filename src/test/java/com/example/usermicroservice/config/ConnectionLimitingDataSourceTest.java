@@ -0,0 +1,94 @@
+package com.example.usermicroservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionLimitingDataSourceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DataSource pool;
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        meterRegistry = new SimpleMeterRegistry();
+        pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        dataSource = new ConnectionLimitingDataSource(pool, "primary", 1, Duration.ofMillis(50), meterRegistry);
+    }
+
+    @Test
+    void testRejectsWhileAllConnectionsAreInUse() throws SQLException {
+        // Arrange
+        Connection first = dataSource.getConnection();
+
+        // Act & Assert: el permiso se ocupa con la conexión y vuelve al cerrarla
+        assertThrows(ConnectionLimitingDataSource.DatabaseBusyException.class, dataSource::getConnection);
+        first.close();
+        Connection second = dataSource.getConnection();
+
+        // Assert
+        assertNotNull(second);
+        assertEquals(1.0, meterRegistry.get("db.concurrency.rejected").tag("pool", "primary").counter().count());
+        assertEquals(0.0, meterRegistry.get("db.concurrency.available").tag("pool", "primary").gauge().value());
+    }
+
+    @Test
+    void testDoubleCloseReleasesOnce() throws SQLException {
+        // Arrange
+        Connection connection = dataSource.getConnection();
+
+        // Act
+        connection.close();
+        connection.close();
+
+        // Assert
+        assertEquals(1.0, meterRegistry.get("db.concurrency.available").tag("pool", "primary").gauge().value());
+    }
+
+    @Test
+    void testFailedAcquisitionReturnsPermit() throws SQLException {
+        // Arrange
+        when(pool.getConnection()).thenThrow(new SQLException("sin red"));
+
+        // Act
+        assertThrows(SQLException.class, dataSource::getConnection);
+
+        // Assert
+        assertEquals(1.0, meterRegistry.get("db.concurrency.available").tag("pool", "primary").gauge().value());
+    }
+
+    @Test
+    void testVirtualThreadModeWrapsEachHikariPoolWithItsSize() throws SQLException {
+        // Arrange
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(3);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        BeanPostProcessor wrapper = VirtualThreadConfig.connectionLimitingDataSources(Duration.ofSeconds(1),
+                beanFactory.getBeanProvider(MeterRegistry.class));
+
+        // Act
+        Object wrapped = wrapper.postProcessAfterInitialization(replica, "replicaDataSource");
+
+        // Assert: las métricas de Hikari siguen encontrando el pool a través del envoltorio
+        DataSource limited = assertInstanceOf(ConnectionLimitingDataSource.class, wrapped);
+        assertSame(replica, limited.unwrap(HikariDataSource.class));
+        assertEquals(3.0, meterRegistry.get("db.concurrency.available").tag("pool", "replica").gauge().value());
+        replica.close();
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.usermicroservice.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final IdempotencyFilter filter =
+            new IdempotencyFilter(100, Duration.ofMinutes(1), Duration.ofSeconds(5), new SimpleMeterRegistry());
+
+    // Controlador de prueba: responde 201 con un cuerpo que identifica la ejecución
+    private final FilterChain controller = (request, response) -> {
+        int execution = executions.incrementAndGet();
+        HttpServletResponse http = (HttpServletResponse) response;
+        http.setStatus(HttpServletResponse.SC_CREATED);
+        http.setContentType("application/json");
+        http.setHeader("Location", "/api/users/" + execution);
+        http.getOutputStream().write(("{\"id\":" + execution + "}").getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    void testRepeatedKeyReplaysStoredResponseWithoutExecuting() throws Exception {
+        // Act
+        MockHttpServletResponse first = send("clave-1", "{\"name\":\"Ana\"}", controller);
+        MockHttpServletResponse second = send("clave-1", "{\"name\":\"Ana\"}", controller);
+
+        // Assert
+        assertEquals(1, executions.get());
+        assertEquals(201, second.getStatus());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals("/api/users/1", second.getHeader("Location"));
+        assertEquals("application/json", second.getContentType());
+        assertEquals("true", second.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testDifferentKeysExecuteIndependently() throws Exception {
+        send("clave-1", "{}", controller);
+        send("clave-2", "{}", controller);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testKeyReusedWithDifferentBodyIsRejected() throws Exception {
+        send("clave-1", "{\"name\":\"Ana\"}", controller);
+
+        MockHttpServletResponse response = send("clave-1", "{\"name\":\"Eva\"}", controller);
+
+        assertEquals(422, response.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testServerErrorIsNotStored() throws Exception {
+        // Arrange: la primera ejecución falla con 503
+        FilterChain failing = (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        };
+        send("clave-1", "{}", failing);
+
+        // Act: el reintento con la misma clave vuelve a ejecutarse
+        MockHttpServletResponse retry = send("clave-1", "{}", controller);
+
+        // Assert
+        assertEquals(2, executions.get());
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testConcurrentDuplicateWaitsForFirstExecution() throws Exception {
+        // Arrange: la primera ejecución se queda bloqueada hasta que el duplicado esté esperando
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            controller.doFilter(request, response);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            Future<MockHttpServletResponse> first = executor.submit(() -> send("clave-1", "{}", slow));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<MockHttpServletResponse> duplicate = executor.submit(() -> send("clave-1", "{}", slow));
+            Thread.sleep(100);
+            assertFalse(duplicate.isDone(), "el duplicado debe esperar a la primera ejecución");
+            release.countDown();
+
+            // Assert
+            assertEquals(201, first.get(5, TimeUnit.SECONDS).getStatus());
+            MockHttpServletResponse replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertEquals(201, replayed.getStatus());
+            assertEquals("{\"id\":1}", replayed.getContentAsString());
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDuplicateTimesOutWhileFirstIsInFlight() throws Exception {
+        // Arrange
+        IdempotencyFilter impatient =
+                new IdempotencyFilter(100, Duration.ofMinutes(1), Duration.ofMillis(50), new SimpleMeterRegistry());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blocked = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> send(impatient, "clave-1", "{}", blocked));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Act
+            MockHttpServletResponse response = send(impatient, "clave-1", "{}", controller);
+
+            // Assert
+            assertEquals(409, response.getStatus());
+            assertEquals("1", response.getHeader("Retry-After"));
+            assertEquals(0, executions.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBlankKeyIsRejected() throws Exception {
+        MockHttpServletResponse response = send("  ", "{}", controller);
+
+        assertEquals(400, response.getStatus());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void testRequestWithoutKeyPassesThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.setContent("{}".getBytes(StandardCharsets.UTF_8));
+
+        filter.doFilter(request, new MockHttpServletResponse(), controller);
+        filter.doFilter(request, new MockHttpServletResponse(), controller);
+
+        assertEquals(2, executions.get());
+    }
+
+    private MockHttpServletResponse send(String key, String body, FilterChain chain) throws Exception {
+        return send(filter, key, body, chain);
+    }
+
+    private static MockHttpServletResponse send(IdempotencyFilter filter, String key, String body, FilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
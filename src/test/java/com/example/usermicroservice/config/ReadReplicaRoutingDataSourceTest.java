@@ -0,0 +1,100 @@
+package com.example.usermicroservice.config;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        // Dos bases H2 independientes; cada una responde con su nombre
+        meterRegistry = new SimpleMeterRegistry();
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(routing(h2("routing-primary"), h2("routing-replica")));
+        routing.setDefaultAutoCommit(true);
+        routing.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadRouting.endRequest();
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplica() {
+        assertEquals("ROUTING-REPLICA", readOnlyTransaction.execute(status -> database()));
+        assertEquals("ROUTING-PRIMARY", writeTransaction.execute(status -> database()));
+        // Sin transacción: primario
+        assertEquals("ROUTING-PRIMARY", database());
+        assertEquals(1.0, meterRegistry.get("datasource.routing.connections").tag("route", "replica").counter().count());
+        assertEquals(2.0, meterRegistry.get("datasource.routing.connections").tag("route", "primary").counter().count());
+    }
+
+    @Test
+    void testOnPrimaryOverridesReadOnly() {
+        assertEquals("ROUTING-PRIMARY", ReadRouting.onPrimary(() -> readOnlyTransaction.execute(status -> database())));
+        assertEquals("ROUTING-REPLICA", readOnlyTransaction.execute(status -> database()));
+    }
+
+    @Test
+    void testWriteInRequestPinsRestOfRequestToPrimary() {
+        // Arrange
+        AtomicInteger writes = new AtomicInteger();
+        ReadRouting.beginRequest(false, writes::incrementAndGet);
+
+        // Act
+        String before = readOnlyTransaction.execute(status -> database());
+        writeTransaction.execute(status -> database());
+        writeTransaction.execute(status -> database());
+        String after = readOnlyTransaction.execute(status -> database());
+
+        // Assert: se avisa una sola vez
+        assertEquals("ROUTING-REPLICA", before);
+        assertEquals("ROUTING-PRIMARY", after);
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void testPinnedSessionReadsFromPrimary() {
+        ReadRouting.beginRequest(true, () -> { });
+
+        assertEquals("ROUTING-PRIMARY", readOnlyTransaction.execute(status -> database()));
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("select database()", String.class);
+    }
+
+    private ReadReplicaRoutingDataSource routing(DataSource primary, DataSource replica) {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, replica, meterRegistry);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
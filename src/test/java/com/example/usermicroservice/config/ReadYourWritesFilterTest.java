@@ -0,0 +1,69 @@
+package com.example.usermicroservice.config;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5), now::get);
+
+    @Test
+    void testWriteSetsCookieUntilEndOfWindow() throws Exception {
+        // Arrange: el controlador escribe
+        FilterChain controller = (request, response) -> ReadRouting.recordWrite();
+
+        // Act
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/users"), response, controller);
+
+        // Assert
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+        assertEquals("1005000", cookie.getValue());
+        assertEquals(5, cookie.getMaxAge());
+        assertTrue(cookie.isHttpOnly());
+        assertFalse(ReadRouting.readsFromPrimary(), "el estado no debe quedar en el hilo");
+    }
+
+    @Test
+    void testReadWithoutWriteSetsNoCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users"), response, (request, res) -> { });
+
+        assertNull(response.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+    }
+
+    @Test
+    void testCookieWithinWindowPinsRequestToPrimary() throws Exception {
+        // Arrange
+        List<Boolean> observed = new ArrayList<>();
+        FilterChain controller = (request, response) -> observed.add(ReadRouting.readsFromPrimary());
+
+        // Act
+        filter.doFilter(withCookie(Long.toString(now.get() + 1)), new MockHttpServletResponse(), controller);
+        filter.doFilter(withCookie(Long.toString(now.get())), new MockHttpServletResponse(), controller);
+        filter.doFilter(withCookie("no-es-un-numero"), new MockHttpServletResponse(), controller);
+
+        // Assert
+        assertEquals(List.of(true, false, false), observed);
+    }
+
+    private static MockHttpServletRequest withCookie(String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, value));
+        return request;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.usermicroservice.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(-5_000_000_000L); // nanoTime puede ser negativo
+
+    @Test
+    void testAllowsBurstThenRejectsUntilRefill() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(RateLimit.parse("3/3s"), 100, now::get);
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("b"), "Cada clave tiene su propio bucket");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    @Test
+    void testIdleKeysExpireThroughTimeWheel() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(RateLimit.parse("2/1m"), 100, now::get);
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire("key-" + i);
+        }
+        limiter.tryAcquire("busy");
+        limiter.tryAcquire("busy");
+
+        // Act
+        now.addAndGet(Duration.ofSeconds(45).toNanos());
+        limiter.tryAcquire("busy"); // sigue vacío: su expiración se reprograma
+        now.addAndGet(Duration.ofSeconds(20).toNanos());
+        limiter.expireIdle(now.get());
+
+        // Assert
+        assertEquals(1, limiter.trackedKeys());
+    }
+
+    @Test
+    void testFailsOpenWhenKeyLimitReached() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(RateLimit.parse("1/1m"), 1, now::get);
+        limiter.tryAcquire("a");
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("b"));
+        assertEquals(0, limiter.tryAcquire("b"));
+        assertEquals(1, limiter.trackedKeys());
+    }
+
+    @Test
+    void testConcurrentAcquireGrantsExactlyCapacity() throws Exception {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(RateLimit.parse("100/1h"), 100, now::get);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int granted = 0;
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("shared") == 0) {
+                        granted++;
+                    }
+                }
+                return granted;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(100, total);
+    }
+
+    @Test
+    void testParse() {
+        assertEquals(new RateLimit(5, Duration.ofMinutes(1)), RateLimit.parse("5/1m"));
+        assertFalse(RateLimit.parse("0").enabled());
+        assertThrows(IllegalArgumentException.class, () -> RateLimit.parse("5"));
+    }
+}
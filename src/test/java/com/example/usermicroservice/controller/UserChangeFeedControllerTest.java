@@ -0,0 +1,128 @@
+package com.example.usermicroservice.controller;
+
+import com.example.usermicroservice.service.UserChangeFeed;
+import com.example.usermicroservice.service.UserChangedEvent;
+import com.example.usermicroservice.service.UserSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class UserChangeFeedControllerTest {
+
+    private UserChangeFeed feed;
+    private UserChangeFeedController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        feed = new UserChangeFeed(3);
+        controller = new UserChangeFeedController(feed, Duration.ofMinutes(1), 2, new SimpleMeterRegistry());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.close();
+    }
+
+    @Test
+    void testNewSubscriberGetsPositionAndThenLiveChanges() throws Exception {
+        // Arrange: un cambio anterior a la suscripción no se envía
+        feed.onUserChanged(UserChangedEvent.created(snapshot(1L)));
+        MvcResult result = subscribe(null);
+        awaitContent(result, content -> content.contains("event:position"));
+
+        // Act
+        feed.onUserChanged(UserChangedEvent.created(snapshot(2L)));
+
+        // Assert
+        String content = awaitContent(result, body -> body.contains("\"email\":\"u2@example.com\""));
+        assertTrue(content.contains("id:" + controller.cursor(1)));
+        assertTrue(content.contains("id:" + controller.cursor(2)));
+        assertTrue(content.contains("event:created"));
+        assertFalse(content.contains("u1@example.com"));
+    }
+
+    @Test
+    void testResumeFromLastEventIdSendsOnlyLaterChanges() throws Exception {
+        // Arrange
+        feed.onUserChanged(UserChangedEvent.created(snapshot(1L)));
+        feed.onUserChanged(UserChangedEvent.updated(snapshot(1L), snapshot(1L)));
+        feed.onUserChanged(UserChangedEvent.deleted(snapshot(1L)));
+
+        // Act
+        MvcResult result = subscribe(controller.cursor(1));
+
+        // Assert
+        String content = awaitContent(result, body -> body.contains("event:deleted\ndata:"));
+        assertFalse(content.contains("event:created"));
+        assertTrue(content.indexOf("event:updated") < content.indexOf("event:deleted"));
+    }
+
+    @Test
+    void testPositionOutsideBufferOrFromOtherStartGetsReset() throws Exception {
+        // Arrange: con un búfer de 3, el offset 1 ya no permite reanudar
+        for (long id = 1; id <= 5; id++) {
+            feed.onUserChanged(UserChangedEvent.created(snapshot(id)));
+        }
+
+        // Act
+        MvcResult overtaken = subscribe(controller.cursor(1));
+        MvcResult otherStart = subscribe("otro-arranque:4");
+
+        // Assert
+        Predicate<String> reset = body -> body.contains("event:reset") && body.contains("data:" + controller.cursor(5));
+        awaitContent(overtaken, reset);
+        awaitContent(otherStart, reset);
+        assertFalse(overtaken.getResponse().getContentAsString().contains("event:created"));
+    }
+
+    @Test
+    void testSubscribersAreCapped() throws Exception {
+        // Arrange: máximo 2 suscriptores
+        subscribe(null);
+        subscribe(null);
+
+        // Act
+        MockHttpServletResponse third = mockMvc.perform(get("/api/users/changes")).andReturn().getResponse();
+
+        // Assert
+        assertEquals(503, third.getStatus());
+    }
+
+    private MvcResult subscribe(String lastEventId) throws Exception {
+        var builder = get("/api/users/changes");
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    // El envío ocurre en otro hilo: espera hasta que el cuerpo cumpla la condición
+    private static String awaitContent(MvcResult result, Predicate<String> condition) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        String content = result.getResponse().getContentAsString();
+        while (!condition.test(content) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        assertTrue(condition.test(content), content);
+        return content;
+    }
+
+    private static UserSnapshot snapshot(Long id) {
+        return new UserSnapshot(id, "Usuario " + id, "u" + id + "@example.com", "USER", null);
+    }
+}
@@ -1,15 +1,44 @@
 package com.example.usermicroservice.controller;
 
+import com.example.usermicroservice.auth.AuthSessionManager;
+import com.example.usermicroservice.auth.JwtService;
+import com.example.usermicroservice.dto.ImportResult;
+import com.example.usermicroservice.dto.UserLookup;
+import com.example.usermicroservice.dto.UserLookupRequest;
+import com.example.usermicroservice.dto.UserPage;
+import com.example.usermicroservice.dto.UserPatchRequest;
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.dto.UserStats;
 import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.service.UserDataFormat;
+import com.example.usermicroservice.service.UserExportService;
+import com.example.usermicroservice.service.UserImportService;
+import com.example.usermicroservice.service.UserChangedEvent;
+import com.example.usermicroservice.service.UserLookupService;
+import com.example.usermicroservice.service.UserSearchService;
+import com.example.usermicroservice.service.UserStatistics;
+import com.example.usermicroservice.service.UserSnapshot;
+import com.example.usermicroservice.service.UserTableVersion;
 import com.example.usermicroservice.service.UserService;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -18,51 +47,258 @@ import static org.mockito.Mockito.*;
 class UserControllerTest {
 
     private UserService userService;
+    private UserExportService userExportService;
+    private UserImportService userImportService;
+    private UserSearchService userSearchService;
+    private UserLookupService userLookupService;
+    private UserStatistics userStatistics;
+    private UserTableVersion userTableVersion;
     private UserController userController;
     private HttpSession session;
+    private MockHttpServletRequest request;
 
     @BeforeEach
     void setUp() {
         userService = mock(UserService.class);
-        userController = new UserController(userService);
+        userExportService = mock(UserExportService.class);
+        userImportService = mock(UserImportService.class);
+        userSearchService = mock(UserSearchService.class);
+        userLookupService = mock(UserLookupService.class);
+        userStatistics = mock(UserStatistics.class);
+        userTableVersion = new UserTableVersion(Duration.ofMinutes(1));
+        JwtService jwtService = new JwtService("0123456789abcdef0123456789abcdef", 60_000);
+        userController = new UserController(userService, userExportService, userImportService, userSearchService,
+                userLookupService, userStatistics, userTableVersion, new AuthSessionManager(jwtService, "session"));
         session = mock(HttpSession.class);
+        request = new MockHttpServletRequest();
+        request.setSession(session);
     }
 
     @Test
     void testGetAllUsers() {
         // Arrange
-        List<User> users = Arrays.asList(new User(), new User());
-        when(userService.getAllUsers()).thenReturn(users);
+        List<UserResponse> users = Arrays.asList(UserResponse.from(new User()), UserResponse.from(new User()));
+        UserPage page = new UserPage(users, "next");
+        when(userService.getUsersPage(null, null, null, null, null)).thenReturn(page);
+
+        // Act
+        ResponseEntity<UserPage> result = userController.getAllUsers(null, null, null, null, null, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals(page, result.getBody());
+        assertNotNull(result.getHeaders().getETag());
+        verify(userService, times(1)).getUsersPage(null, null, null, null, null);
+    }
+
+    @Test
+    void testGetAllUsersEtagDependsOnQuery() {
+        // Arrange
+        when(userService.getUsersPage(any(), any(), any(), any(), any())).thenReturn(new UserPage(List.of(), null));
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        String firstPage = userController.getAllUsers(null, null, null, null, null, null).getHeaders().getETag();
+
+        // Act
+        ResponseEntity<UserPage> sameQuery = userController.getAllUsers("", 20, null, null, null, firstPage);
+        ResponseEntity<UserPage> nextPage = userController.getAllUsers("Mg", null, null, null, null, firstPage);
+        ResponseEntity<UserPage> otherSize = userController.getAllUsers(null, 5, null, null, null, firstPage);
+        ResponseEntity<UserPage> filtered = userController.getAllUsers(null, null, "ADMIN", from, null, firstPage);
+
+        // Assert: cursor vacío y tamaño por defecto son la misma consulta; el resto no puede reutilizar el ETag
+        assertEquals(HttpStatus.NOT_MODIFIED, sameQuery.getStatusCode());
+        assertEquals(HttpStatus.OK, nextPage.getStatusCode());
+        assertEquals(HttpStatus.OK, otherSize.getStatusCode());
+        assertEquals(HttpStatus.OK, filtered.getStatusCode());
+        assertNotEquals(firstPage, filtered.getHeaders().getETag());
+    }
+
+    @Test
+    void testGetAllUsersNotModifiedSkipsDatabase() {
+        // Arrange
+        when(userService.getUsersPage(null, null, null, null, null)).thenReturn(new UserPage(List.of(), null));
+        String etag = userController.getAllUsers(null, null, null, null, null, null).getHeaders().getETag();
+
+        // Act
+        ResponseEntity<UserPage> unchanged = userController.getAllUsers(null, null, null, null, null, etag);
+        userTableVersion.onUserChanged(UserChangedEvent.deleted(new UserSnapshot(1L, "John", "john@example.com", "USER", null)));
+        ResponseEntity<UserPage> changed = userController.getAllUsers(null, null, null, null, null, etag);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+        assertNull(unchanged.getBody());
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        verify(userService, times(2)).getUsersPage(null, null, null, null, null);
+    }
+
+    @Test
+    void testGetAllUsersInvalidCursor() {
+        // Arrange
+        when(userService.getUsersPage("bad", null, null, null, null)).thenThrow(new IllegalArgumentException());
+
+        // Act
+        ResponseEntity<UserPage> result = userController.getAllUsers("bad", null, null, null, null, null);
+
+        // Assert
+        assertEquals(ResponseEntity.badRequest().build(), result);
+    }
+
+    @Test
+    void testSearchUsers() {
+        // Arrange
+        List<UserResponse> hits = List.of(UserResponse.from(new User()));
+        when(userSearchService.search("maria", 5)).thenReturn(new UserSearchService.Result(hits, false));
+
+        // Act
+        ResponseEntity<List<UserResponse>> response = userController.searchUsers("maria", 5);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(hits, response.getBody());
+        assertNull(response.getHeaders().getFirst("Search-Truncated"));
+    }
+
+    @Test
+    void testSearchUsersReportsTruncation() {
+        // Arrange
+        List<UserResponse> hits = List.of(UserResponse.from(new User()));
+        when(userSearchService.search("a", null)).thenReturn(new UserSearchService.Result(hits, true));
+
+        // Act
+        ResponseEntity<List<UserResponse>> response = userController.searchUsers("a", null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(hits, response.getBody());
+        assertEquals("true", response.getHeaders().getFirst("Search-Truncated"));
+    }
+
+    @Test
+    void testSearchUsersInvalidQuery() {
+        // Arrange
+        when(userSearchService.search(" ", null)).thenThrow(new IllegalArgumentException("Consulta de búsqueda inválida"));
+
+        // Act
+        ResponseEntity<List<UserResponse>> response = userController.searchUsers(" ", null);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testLookupUsersByIds() {
+        // Arrange
+        UserLookup lookup = new UserLookup(List.of(UserResponse.from(new User())), List.of(9L));
+        when(userLookupService.lookup(List.of(3L, 9L))).thenReturn(lookup);
 
         // Act
-        List<User> result = userController.getAllUsers();
+        ResponseEntity<UserLookup> byQuery = userController.getUsersByIds(List.of(3L, 9L));
+        ResponseEntity<UserLookup> byBody = userController.lookupUsers(new UserLookupRequest(List.of(3L, 9L)));
 
         // Assert
-        assertEquals(users, result);
-        verify(userService, times(1)).getAllUsers();
+        assertEquals(HttpStatus.OK, byQuery.getStatusCode());
+        assertEquals(lookup, byQuery.getBody());
+        assertEquals(lookup, byBody.getBody());
+    }
+
+    @Test
+    void testLookupUsersInvalidIds() {
+        // Arrange
+        when(userLookupService.lookup(null)).thenThrow(new IllegalArgumentException("Lista de ids inválida"));
+
+        // Act
+        ResponseEntity<UserLookup> response = userController.lookupUsers(new UserLookupRequest(null));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testGetStats() {
+        // Arrange
+        UserStats stats = new UserStats(2, Map.of("USER", 2L), Map.of(), Map.of(), null);
+        when(userStatistics.snapshot()).thenReturn(Optional.of(stats));
+
+        // Act
+        ResponseEntity<UserStats> response = userController.getStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void testGetStatsBeforeFirstBuild() {
+        when(userStatistics.snapshot()).thenReturn(Optional.empty());
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, userController.getStats().getStatusCode());
     }
 
     @Test
     void testGetUserByIdFound() {
         // Arrange
         User user = new User();
+        user.setId(1L);
+        user.setPassword("$2a$10$hash");
         when(userService.getUserById(1L)).thenReturn(Optional.of(user));
 
         // Act
-        ResponseEntity<User> response = userController.getUserById(1L);
+        ResponseEntity<UserResponse> response = userController.getUserById(1L, null);
 
         // Assert
-        assertEquals(ResponseEntity.ok(user), response);
+        assertEquals(ResponseEntity.ok(UserResponse.from(user)), response);
         verify(userService, times(1)).getUserById(1L);
     }
 
+    @Test
+    void testGetUserByIdConditional() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        user.setVersion(3L);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
+
+        // Act
+        ResponseEntity<UserResponse> fresh = userController.getUserById(1L, null);
+        ResponseEntity<UserResponse> notModified = userController.getUserById(1L, "\"0-1\", W/\"1-3\"");
+        ResponseEntity<UserResponse> stale = userController.getUserById(1L, "\"1-2\"");
+
+        // Assert
+        assertEquals(HttpStatus.OK, fresh.getStatusCode());
+        assertEquals("\"1-3\"", fresh.getHeaders().getETag());
+        assertEquals("no-cache, private", fresh.getHeaders().getCacheControl());
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals("\"1-3\"", notModified.getHeaders().getETag());
+        assertNull(notModified.getBody());
+        assertEquals(HttpStatus.OK, stale.getStatusCode());
+        assertEquals(UserResponse.from(user), stale.getBody());
+    }
+
+    @Test
+    void testGetUserByIdDoesNotExposePassword() throws Exception {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        user.setName("John Doe");
+        user.setPassword("$2a$10$hash");
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
+
+        // Act
+        String json = new ObjectMapper().findAndRegisterModules()
+                .writeValueAsString(userController.getUserById(1L, null).getBody());
+
+        // Assert
+        assertTrue(json.contains("\"name\":\"John Doe\""));
+        assertFalse(json.contains("password"));
+    }
+
     @Test
     void testGetUserByIdNotFound() {
         // Arrange
         when(userService.getUserById(1L)).thenReturn(Optional.empty());
 
         // Act
-        ResponseEntity<User> response = userController.getUserById(1L);
+        ResponseEntity<UserResponse> response = userController.getUserById(1L, null);
 
         // Assert
         assertEquals(ResponseEntity.notFound().build(), response);
@@ -76,10 +312,10 @@ class UserControllerTest {
         when(userService.createUser(user)).thenReturn(user);
 
         // Act
-        ResponseEntity<User> response = userController.createUser(user);
+        ResponseEntity<UserResponse> response = userController.createUser(user);
 
         // Assert
-        assertEquals(ResponseEntity.ok(user), response);
+        assertEquals(ResponseEntity.ok(UserResponse.from(user)), response);
         verify(userService, times(1)).createUser(user);
     }
 
@@ -90,10 +326,10 @@ class UserControllerTest {
         when(userService.updateUser(1L, user)).thenReturn(user);
 
         // Act
-        ResponseEntity<User> response = userController.updateUser(1L, user);
+        ResponseEntity<UserResponse> response = userController.updateUser(1L, user);
 
         // Assert
-        assertEquals(ResponseEntity.ok(user), response);
+        assertEquals(ResponseEntity.ok(UserResponse.from(user)), response);
         verify(userService, times(1)).updateUser(1L, user);
     }
 
@@ -104,24 +340,136 @@ class UserControllerTest {
         when(userService.updateUser(1L, user)).thenThrow(new RuntimeException());
 
         // Act
-        ResponseEntity<User> response = userController.updateUser(1L, user);
+        ResponseEntity<UserResponse> response = userController.updateUser(1L, user);
 
         // Assert
         assertEquals(ResponseEntity.notFound().build(), response);
         verify(userService, times(1)).updateUser(1L, user);
     }
 
+    @Test
+    void testPatchUserFound() {
+        // Arrange
+        UserPatchRequest patch = new UserPatchRequest(null, null, null, null, "555-1234", 2L);
+        User user = new User();
+        user.setId(1L);
+        user.setTelefono("555-1234");
+        user.setVersion(3L);
+        when(session.getAttribute("user")).thenReturn(sessionUser(1L, "USER"));
+        when(userService.patchUser(1L, patch)).thenReturn(Optional.of(user));
+
+        // Act
+        ResponseEntity<UserResponse> response = userController.patchUser(1L, patch, request);
+
+        // Assert
+        assertEquals(ResponseEntity.ok(UserResponse.from(user)), response);
+    }
+
+    @Test
+    void testPatchUserNotFound() {
+        // Arrange
+        UserPatchRequest patch = new UserPatchRequest("New Name", null, null, null, null, null);
+        when(session.getAttribute("user")).thenReturn(sessionUser(9L, "ADMIN"));
+        when(userService.patchUser(1L, patch)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<UserResponse> response = userController.patchUser(1L, patch, request);
+
+        // Assert
+        assertEquals(ResponseEntity.notFound().build(), response);
+    }
+
+    @Test
+    void testPatchUserNotAuthenticated() {
+        // Arrange
+        UserPatchRequest patch = new UserPatchRequest("New Name", null, null, null, null, null);
+        when(session.getAttribute("user")).thenReturn(null);
+
+        // Act
+        ResponseEntity<UserResponse> response = userController.patchUser(1L, patch, request);
+
+        // Assert
+        assertEquals(ResponseEntity.status(401).build(), response);
+        verify(userService, never()).patchUser(any(), any());
+    }
+
+    @Test
+    void testPatchUserOnlySelfAndNoRoleChangeUnlessAdmin() {
+        // Arrange
+        UserPatchRequest rename = new UserPatchRequest("New Name", null, null, null, null, null);
+        UserPatchRequest promote = new UserPatchRequest(null, null, "ADMIN", null, null, null);
+        when(session.getAttribute("user")).thenReturn(sessionUser(1L, "USER"));
+
+        // Act
+        ResponseEntity<UserResponse> otherUser = userController.patchUser(2L, rename, request);
+        ResponseEntity<UserResponse> ownRole = userController.patchUser(1L, promote, request);
+
+        // Assert
+        assertEquals(ResponseEntity.status(403).build(), otherUser);
+        assertEquals(ResponseEntity.status(403).build(), ownRole);
+        verify(userService, never()).patchUser(any(), any());
+    }
+
+    @Test
+    void testPatchUserAdminMayChangeAnyRole() {
+        // Arrange
+        UserPatchRequest promote = new UserPatchRequest(null, null, "ADMIN", null, null, null);
+        User user = new User();
+        user.setId(2L);
+        user.setRole("ADMIN");
+        when(session.getAttribute("user")).thenReturn(sessionUser(9L, "ADMIN"));
+        when(userService.patchUser(2L, promote)).thenReturn(Optional.of(user));
+
+        // Act
+        ResponseEntity<UserResponse> response = userController.patchUser(2L, promote, request);
+
+        // Assert
+        assertEquals(ResponseEntity.ok(UserResponse.from(user)), response);
+    }
+
+    @Test
+    void testUpdateUserConflict() {
+        // Arrange
+        User user = new User();
+        when(userService.updateUser(1L, user)).thenThrow(new ObjectOptimisticLockingFailureException(User.class, 1L));
+
+        // Act
+        ResponseEntity<UserResponse> response = userController.updateUser(1L, user);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
     @Test
     void testGetAuthenticatedUserAuthenticated() {
         // Arrange
         User user = new User();
+        user.setId(1L);
         when(session.getAttribute("user")).thenReturn(user);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
 
         // Act
-        ResponseEntity<User> response = userController.getAuthenticatedUser(session);
+        ResponseEntity<UserResponse> response = userController.getAuthenticatedUser(request, null);
 
         // Assert
-        assertEquals(ResponseEntity.ok(user), response);
+        assertEquals(ResponseEntity.ok(UserResponse.from(user)), response);
+    }
+
+    @Test
+    void testGetAuthenticatedUserNotModified() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        user.setVersion(0L);
+        when(session.getAttribute("user")).thenReturn(user);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(user));
+
+        // Act
+        ResponseEntity<UserResponse> response = userController.getAuthenticatedUser(request, "\"1-0\"");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
     }
 
     @Test
@@ -130,7 +478,7 @@ class UserControllerTest {
         when(session.getAttribute("user")).thenReturn(null);
 
         // Act
-        ResponseEntity<User> response = userController.getAuthenticatedUser(session);
+        ResponseEntity<UserResponse> response = userController.getAuthenticatedUser(request, null);
 
         // Assert
         assertEquals(ResponseEntity.status(401).build(), response);
@@ -144,7 +492,7 @@ class UserControllerTest {
         when(session.getAttribute("user")).thenReturn(adminUser);
 
         // Act
-        ResponseEntity<Void> response = userController.deleteUser(1L, session);
+        ResponseEntity<Void> response = userController.deleteUser(1L, request);
 
         // Assert
         assertEquals(ResponseEntity.noContent().build(), response);
@@ -159,7 +507,7 @@ class UserControllerTest {
         when(session.getAttribute("user")).thenReturn(regularUser);
 
         // Act
-        ResponseEntity<Void> response = userController.deleteUser(1L, session);
+        ResponseEntity<Void> response = userController.deleteUser(1L, request);
 
         // Assert
         assertEquals(ResponseEntity.status(403).build(), response);
@@ -172,10 +520,98 @@ class UserControllerTest {
         when(session.getAttribute("user")).thenReturn(null);
 
         // Act
-        ResponseEntity<Void> response = userController.deleteUser(1L, session);
+        ResponseEntity<Void> response = userController.deleteUser(1L, request);
 
         // Assert
         assertEquals(ResponseEntity.status(403).build(), response);
         verify(userService, never()).deleteUser(1L);
     }
+
+    @Test
+    void testExportUsersAsAdmin() throws Exception {
+        // Arrange
+        User adminUser = new User();
+        adminUser.setRole("ADMIN");
+        when(session.getAttribute("user")).thenReturn(adminUser);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = userController.exportUsers("csv", request);
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("text/csv", response.getHeaders().getContentType().toString());
+        verify(userExportService, times(1)).export(UserDataFormat.CSV, out);
+    }
+
+    @Test
+    void testExportUsersNotAdmin() throws Exception {
+        // Arrange
+        User regularUser = new User();
+        regularUser.setRole("USER");
+        when(session.getAttribute("user")).thenReturn(regularUser);
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = userController.exportUsers(null, request);
+
+        // Assert
+        assertEquals(ResponseEntity.status(403).build(), response);
+        verify(userExportService, never()).export(any(), any());
+    }
+
+    @Test
+    void testExportUsersUnknownFormat() {
+        // Arrange
+        User adminUser = new User();
+        adminUser.setRole("ADMIN");
+        when(session.getAttribute("user")).thenReturn(adminUser);
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = userController.exportUsers("xml", request);
+
+        // Assert
+        assertEquals(ResponseEntity.badRequest().build(), response);
+    }
+
+    @Test
+    void testImportUsersAsAdmin() throws Exception {
+        // Arrange
+        User adminUser = new User();
+        adminUser.setRole("ADMIN");
+        when(session.getAttribute("user")).thenReturn(adminUser);
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        ImportResult result = new ImportResult(1, 1, 0, List.of(), false);
+        when(userImportService.importUsers(UserDataFormat.CSV, body)).thenReturn(result);
+
+        // Act
+        ResponseEntity<ImportResult> response = userController.importUsers("text/csv; charset=UTF-8", body, request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    @Test
+    void testImportUsersNotAdmin() throws Exception {
+        // Arrange
+        User regularUser = new User();
+        regularUser.setRole("USER");
+        when(session.getAttribute("user")).thenReturn(regularUser);
+
+        // Act
+        ResponseEntity<ImportResult> response = userController.importUsers("application/x-ndjson",
+                new ByteArrayInputStream(new byte[0]), request);
+
+        // Assert
+        assertEquals(ResponseEntity.status(403).build(), response);
+        verify(userImportService, never()).importUsers(any(), any());
+    }
+
+    private static User sessionUser(Long id, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        return user;
+    }
 }
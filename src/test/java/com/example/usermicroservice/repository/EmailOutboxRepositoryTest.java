@@ -0,0 +1,69 @@
+package com.example.usermicroservice.repository;
+
+import com.example.usermicroservice.entity.EmailOutboxMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class EmailOutboxRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testStreamDueReturnsOnlyDueMessagesInOrder() {
+        // Arrange
+        EmailOutboxMessage first = outboxRepository.save(new EmailOutboxMessage("a@example.com", "Asunto", "Cuerpo", NOW.minusMinutes(2)));
+        EmailOutboxMessage later = new EmailOutboxMessage("b@example.com", "Asunto", "Cuerpo", NOW.minusMinutes(1));
+        later.setNextAttemptAt(NOW.plusMinutes(5));
+        outboxRepository.save(later);
+        EmailOutboxMessage second = outboxRepository.save(new EmailOutboxMessage("c@example.com", "Asunto", "Cuerpo", NOW));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<Long> due;
+        try (Stream<EmailOutboxMessage> messages = outboxRepository.streamDue(NOW)) {
+            due = messages.map(EmailOutboxMessage::getId).toList();
+        }
+
+        // Assert
+        assertEquals(List.of(first.getId(), second.getId()), due);
+    }
+
+    @Test
+    void testRecordFailureAndOldestPending() {
+        // Arrange
+        EmailOutboxMessage abandoned = outboxRepository.save(new EmailOutboxMessage("a@example.com", "Asunto", "Cuerpo", NOW.minusHours(1)));
+        EmailOutboxMessage pending = outboxRepository.save(new EmailOutboxMessage("b@example.com", "Asunto", "Cuerpo", NOW));
+        entityManager.flush();
+
+        // Act
+        outboxRepository.recordFailure(abandoned.getId(), null, "buzón inexistente");
+        entityManager.clear();
+
+        // Assert: el mensaje retenido no cuenta como pendiente
+        EmailOutboxMessage stored = outboxRepository.findById(abandoned.getId()).orElseThrow();
+        assertEquals(1, stored.getAttempts());
+        assertNull(stored.getNextAttemptAt());
+        assertEquals("buzón inexistente", stored.getLastError());
+        assertEquals(NOW, outboxRepository.findOldestPendingCreatedAt());
+        assertNotNull(pending.getId());
+    }
+}
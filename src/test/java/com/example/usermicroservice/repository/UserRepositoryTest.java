@@ -1,20 +1,175 @@
 package com.example.usermicroservice.repository;
 
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.service.UserSnapshot;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@DataJpaTest
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
 class UserRepositoryTest {
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @Test
     void contextLoads() {
         // Assert that the repository bean is loaded into the context
         assertNotNull(userRepository, "UserRepository should not be null");
     }
+
+    @Test
+    void testFindPageAfterUsesKeysetAndFilters() {
+        // Arrange
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        User first = userRepository.save(newUser("a@example.com", "USER", base));
+        User second = userRepository.save(newUser("b@example.com", "ADMIN", base.plusDays(1)));
+        User third = userRepository.save(newUser("c@example.com", "USER", base.plusDays(2)));
+
+        // Act
+        List<UserResponse> firstPage = userRepository.findPageAfter(0L, null, null, null, Limit.of(2));
+        List<UserResponse> nextPage = userRepository.findPageAfter(firstPage.get(1).id(), null, null, null, Limit.of(2));
+        List<UserResponse> users = userRepository.findPageAfter(0L, "USER", null, null, Limit.of(10));
+        List<UserResponse> inRange = userRepository.findPageAfter(0L, null, base.plusDays(1), base.plusDays(2), Limit.of(10));
+
+        // Assert
+        assertEquals(List.of(UserResponse.from(first), UserResponse.from(second)), firstPage);
+        assertEquals(List.of(third.getId()), nextPage.stream().map(UserResponse::id).toList());
+        assertEquals(List.of(first.getId(), third.getId()), users.stream().map(UserResponse::id).toList());
+        assertEquals(List.of(second.getId()), inRange.stream().map(UserResponse::id).toList());
+    }
+
+    @Test
+    void testStreamAllOrderedById() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        User first = userRepository.save(newUser("d@example.com", "USER", now));
+        User second = userRepository.save(newUser("e@example.com", "USER", now));
+
+        // Act
+        List<Long> ids;
+        try (Stream<User> users = userRepository.streamAll()) {
+            ids = users.map(User::getId).toList();
+        }
+
+        // Assert
+        assertEquals(List.of(first.getId(), second.getId()), ids);
+    }
+
+    @Test
+    void testStreamAllEmails() {
+        // Arrange
+        userRepository.save(newUser("f@example.com", "USER", LocalDateTime.now()));
+
+        // Act
+        List<String> emails;
+        try (Stream<String> stream = userRepository.streamAllEmails()) {
+            emails = stream.toList();
+        }
+
+        // Assert
+        assertEquals(List.of("f@example.com"), emails);
+    }
+
+    @Test
+    void testPatchUpdatesOnlyGivenColumnsAndChecksVersion() {
+        // Arrange
+        User user = userRepository.saveAndFlush(newUser("g@example.com", "USER", LocalDateTime.now()));
+        long version = user.getVersion();
+        entityManager.clear();
+
+        // Act
+        int updated = userRepository.patch(user.getId(), version, Map.of("telefono", "555-1234"));
+        int stale = userRepository.patch(user.getId(), version, Map.of("name", "Stale"));
+        int unconditional = userRepository.patch(user.getId(), null, Map.of("direccion", "Calle 1"));
+        entityManager.clear();
+
+        // Assert
+        assertEquals(1, updated);
+        assertEquals(0, stale);
+        assertEquals(1, unconditional);
+        User reloaded = userRepository.findById(user.getId()).orElseThrow();
+        assertEquals("Test", reloaded.getName());
+        assertEquals("555-1234", reloaded.getTelefono());
+        assertEquals("Calle 1", reloaded.getDireccion());
+        assertEquals(version + 2, reloaded.getVersion());
+    }
+
+    @Test
+    void testSearchQueries() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+        User maria = newUser("maria_g@example.com", "USER", createdAt);
+        maria.setName("María González");
+        userRepository.save(maria);
+        User other = userRepository.save(newUser("mariax@example.com", "USER", createdAt));
+
+        // Act
+        List<UserResponse> byName = userRepository.searchByPrefix("maría", Limit.of(10));
+        List<UserResponse> escaped = userRepository.searchByPrefix("maria\\_", Limit.of(10));
+        List<UserResponse> byIds = userRepository.findResponsesByIdIn(List.of(other.getId()));
+        List<String> snapshots;
+        try (Stream<UserSnapshot> stream = userRepository.streamSnapshots()) {
+            snapshots = stream.map(UserSnapshot::name).toList();
+        }
+
+        // Assert
+        assertEquals(List.of(maria.getId()), byName.stream().map(UserResponse::id).toList());
+        assertEquals(List.of(maria.getId()), escaped.stream().map(UserResponse::id).toList());
+        assertEquals(List.of(UserResponse.from(other)), byIds);
+        assertEquals(2, snapshots.size());
+        assertTrue(snapshots.contains("María González"));
+    }
+
+    @Test
+    void testAggregatesForStatistics() {
+        // Arrange
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        userRepository.save(newUser("a@example.com", "USER", base));
+        userRepository.save(newUser("b@example.com", "USER", base.plusDays(2)));
+        userRepository.save(newUser("c@example.com", "ADMIN", base.plusDays(3)));
+        userRepository.save(newUser("d@example.com", "USER", base.plusDays(3).plusMinutes(20)));
+
+        // Act
+        Map<String, Long> byRole = new HashMap<>();
+        userRepository.countByRole().forEach(row -> byRole.put(row.getRole(), row.getTotal()));
+        Map<LocalDateTime, Long> perHour = new HashMap<>();
+        userRepository.countSignupsPerHourSince(base.plusDays(2))
+                .forEach(row -> perHour.put(row.getHourStart(), row.getTotal()));
+
+        // Assert
+        assertEquals(Map.of("USER", 3L, "ADMIN", 1L), byRole);
+        assertEquals(Map.of(base.plusDays(2).truncatedTo(ChronoUnit.HOURS), 1L,
+                base.plusDays(3).truncatedTo(ChronoUnit.HOURS), 2L), perHour);
+    }
+
+    private static User newUser(String email, String role, LocalDateTime createdAt) {
+        User user = new User();
+        user.setName("Test");
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setRole(role);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
 }
@@ -0,0 +1,163 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.EmailOutboxMessage;
+import com.example.usermicroservice.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EmailOutboxDispatcherTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private EmailOutboxRepository outboxRepository;
+    private List<EmailMessage> delivered;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(EmailOutboxRepository.class);
+        delivered = new ArrayList<>();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testDispatchDeliversBatchAndDeletesDelivered() {
+        // Arrange
+        EmailOutboxMessage first = message(1L, NOW.minusSeconds(3), 0);
+        EmailOutboxMessage second = message(2L, NOW.minusSeconds(1), 0);
+        when(outboxRepository.streamDue(NOW)).thenReturn(Stream.of(first, second));
+        EmailOutboxDispatcher dispatcher = dispatcher(delivered::add, 10);
+
+        // Act
+        dispatcher.dispatch();
+
+        // Assert
+        assertEquals(List.of(1L, 2L), delivered.stream().map(EmailMessage::id).toList());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxRepository, never()).recordFailure(any(), any(), any());
+        // Reservados mientras se enviaban
+        assertEquals(NOW.plusMinutes(5), first.getNextAttemptAt());
+        assertEquals(2.0, meterRegistry.get("email.outbox.deliveries").tag("outcome", "sent").counter().count());
+        assertEquals(2, meterRegistry.get("email.outbox.lag").timer().count());
+        assertEquals(3.0, meterRegistry.get("email.outbox.lag").timer().max(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testDispatchDrainsFullBatchesUntilShortOne() {
+        // Arrange: 5 mensajes con lotes de 2 -> 3 lotes en una sola pasada
+        List<EmailOutboxMessage> pending = new ArrayList<>(IntStream.rangeClosed(1, 5)
+                .mapToObj(id -> message((long) id, NOW, 0)).toList());
+        when(outboxRepository.streamDue(NOW)).thenAnswer(invocation -> {
+            List<EmailOutboxMessage> due = List.copyOf(pending);
+            pending.subList(0, Math.min(2, pending.size())).clear();
+            return due.stream();
+        });
+        EmailOutboxDispatcher dispatcher = dispatcher(delivered::add, 2);
+
+        // Act
+        dispatcher.dispatch();
+
+        // Assert
+        assertEquals(5, delivered.size());
+        verify(outboxRepository, times(3)).streamDue(NOW);
+    }
+
+    @Test
+    void testDispatchFailureSchedulesRetryWithBackoff() {
+        // Arrange
+        when(outboxRepository.streamDue(NOW)).thenReturn(Stream.of(message(1L, NOW, 2)));
+        EmailOutboxDispatcher dispatcher = dispatcher(message -> {
+            throw new IllegalStateException("SMTP no disponible");
+        }, 10);
+
+        // Act
+        dispatcher.dispatch();
+
+        // Assert: tercer intento fallido -> espera 10s * 2^2
+        verify(outboxRepository).recordFailure(1L, NOW.plusSeconds(40), "IllegalStateException: SMTP no disponible");
+        verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+        assertEquals(1.0, meterRegistry.get("email.outbox.deliveries").tag("outcome", "retry").counter().count());
+    }
+
+    @Test
+    void testDispatchAbandonsAfterMaxAttempts() {
+        // Arrange
+        when(outboxRepository.streamDue(NOW)).thenReturn(Stream.of(message(1L, NOW, 7)));
+        EmailOutboxDispatcher dispatcher = dispatcher(message -> {
+            throw new IllegalStateException("buzón inexistente");
+        }, 10);
+
+        // Act
+        dispatcher.dispatch();
+
+        // Assert
+        verify(outboxRepository).recordFailure(1L, null, "IllegalStateException: buzón inexistente");
+        assertEquals(1.0, meterRegistry.get("email.outbox.deliveries").tag("outcome", "abandoned").counter().count());
+    }
+
+    @Test
+    void testBackoffIsCapped() {
+        EmailOutboxDispatcher dispatcher = dispatcher(delivered::add, 10);
+
+        assertEquals(Duration.ofSeconds(10), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(80), dispatcher.backoff(4));
+        assertEquals(Duration.ofMinutes(30), dispatcher.backoff(20));
+        assertEquals(Duration.ofMinutes(30), dispatcher.backoff(100));
+    }
+
+    @Test
+    void testOldestPendingAgeGauge() {
+        // Arrange
+        when(outboxRepository.streamDue(NOW)).thenReturn(Stream.empty());
+        when(outboxRepository.findOldestPendingCreatedAt()).thenReturn(NOW.minusSeconds(90));
+        EmailOutboxDispatcher dispatcher = dispatcher(delivered::add, 10);
+
+        // Act
+        dispatcher.dispatch();
+
+        // Assert
+        assertEquals(90.0, meterRegistry.get("email.outbox.oldest.age").gauge().value());
+    }
+
+    @Test
+    void testDispatchToleratesDatabaseFailure() {
+        // Arrange
+        when(outboxRepository.streamDue(any())).thenThrow(new IllegalStateException("sin conexión"));
+        EmailOutboxDispatcher dispatcher = dispatcher(delivered::add, 10);
+
+        // Act & Assert
+        assertDoesNotThrow(dispatcher::dispatch);
+        assertTrue(delivered.isEmpty());
+    }
+
+    private EmailOutboxDispatcher dispatcher(EmailSender sender, int batchSize) {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T12:00:00Z"), ZoneOffset.UTC);
+        return new EmailOutboxDispatcher(outboxRepository, sender, mock(PlatformTransactionManager.class), meterRegistry,
+                true, batchSize, 8, Duration.ofSeconds(10), Duration.ofMinutes(30), Duration.ofMinutes(5), clock);
+    }
+
+    private static EmailOutboxMessage message(Long id, LocalDateTime createdAt, int attempts) {
+        EmailOutboxMessage message = new EmailOutboxMessage("user" + id + "@example.com", "Asunto", "Cuerpo", createdAt);
+        ReflectionTestUtils.setField(message, "id", id);
+        ReflectionTestUtils.setField(message, "attempts", attempts);
+        return message;
+    }
+}
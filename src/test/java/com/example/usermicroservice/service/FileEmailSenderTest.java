@@ -0,0 +1,35 @@
+package com.example.usermicroservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileEmailSenderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSendWritesOneFilePerMessageId() throws IOException {
+        // Arrange
+        FileEmailSender sender = new FileEmailSender(directory.resolve("mail"));
+
+        // Act: un reenvío del mismo mensaje sobrescribe el archivo
+        sender.send(new EmailMessage(5L, "ana@example.com", "Restablecer", "Primer intento"));
+        sender.send(new EmailMessage(5L, "ana@example.com", "Restablecer", "Segundo intento"));
+
+        // Assert
+        Path file = directory.resolve("mail").resolve("message-5.eml");
+        try (var files = Files.list(directory.resolve("mail"))) {
+            assertEquals(1, files.count());
+        }
+        String content = Files.readString(file);
+        assertTrue(content.startsWith("To: ana@example.com\r\nSubject: Restablecer\r\n"));
+        assertTrue(content.contains("Segundo intento"));
+    }
+}
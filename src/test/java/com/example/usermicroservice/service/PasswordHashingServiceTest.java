@@ -0,0 +1,134 @@
+package com.example.usermicroservice.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingService passwordHashingService = new PasswordHashingService(4, 2, 10, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void testHashAndMatches() {
+        // Act
+        String hash = passwordHashingService.hash("secret123");
+
+        // Assert
+        assertTrue(passwordHashingService.isHashed(hash));
+        assertTrue(passwordHashingService.matches("secret123", hash));
+        assertFalse(passwordHashingService.matches("other", hash));
+        assertFalse(passwordHashingService.needsRehash(hash));
+        Timer timer = meterRegistry.get("auth.password.latency").tag("operation", "hash").timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void testHashAllKeepsOrder() {
+        // Arrange
+        List<String> passwords = List.of("uno-1", "dos-2", "tres-3", "cuatro-4", "cinco-5");
+
+        // Act
+        List<String> hashes = passwordHashingService.hashAll(passwords);
+
+        // Assert
+        assertEquals(passwords.size(), hashes.size());
+        for (int i = 0; i < passwords.size(); i++) {
+            assertTrue(passwordHashingService.matches(passwords.get(i), hashes.get(i)));
+        }
+        Timer timer = meterRegistry.get("auth.password.latency").tag("operation", "hash").timer();
+        assertEquals(passwords.size(), timer.count());
+    }
+
+    @Test
+    void testHashAllRunsOnCallerWhenQueueIsFull() throws Exception {
+        // Arrange: un hilo y una cola de una posición, ocupados por tareas lentas
+        passwordHashingService.shutdown();
+        passwordHashingService = new PasswordHashingService(12, 1, 1, new SimpleMeterRegistry());
+        CountDownLatch started = new CountDownLatch(2);
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                started.countDown();
+                return passwordHashingService.hash("secret123");
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        List<String> hashes = passwordHashingService.hashAll(List.of("importado-1"));
+
+        // Assert: la importación no falla aunque el ejecutor esté saturado
+        for (CompletableFuture<String> future : pending) {
+            try {
+                future.join();
+            } catch (CompletionException ignored) {
+                // Alguna de las tareas previas también pudo ser rechazada
+            }
+        }
+        assertTrue(passwordHashingService.matches("importado-1", hashes.get(0)));
+    }
+
+    @Test
+    void testLegacyPlaintextPasswords() {
+        assertTrue(passwordHashingService.matches("secret123", "secret123"));
+        assertFalse(passwordHashingService.matches("secret124", "secret123"));
+        assertTrue(passwordHashingService.needsRehash("secret123"));
+        assertFalse(passwordHashingService.matches("secret123", null));
+    }
+
+    @Test
+    void testNeedsRehashWhenCostIncreases() {
+        // Arrange
+        PasswordHashingService stronger = new PasswordHashingService(5, 1, 10, new SimpleMeterRegistry());
+
+        // Act
+        String hash = passwordHashingService.hash("secret123");
+
+        // Assert
+        assertTrue(stronger.needsRehash(hash));
+        stronger.shutdown();
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        // Arrange: un hilo y una cola de una posición, ocupados por tareas lentas
+        passwordHashingService.shutdown();
+        passwordHashingService = new PasswordHashingService(14, 1, 1, new SimpleMeterRegistry());
+        CountDownLatch started = new CountDownLatch(2);
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                started.countDown();
+                return passwordHashingService.hash("secret123");
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        // Act & Assert
+        assertThrows(PasswordHashingUnavailableException.class, () -> passwordHashingService.hash("secret123"));
+        for (CompletableFuture<String> future : pending) {
+            try {
+                future.join();
+            } catch (CompletionException ignored) {
+                // Alguna de las tareas previas también pudo ser rechazada
+            }
+        }
+    }
+}
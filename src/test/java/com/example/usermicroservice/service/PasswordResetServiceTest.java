@@ -0,0 +1,85 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.EmailOutboxMessage;
+import com.example.usermicroservice.entity.PasswordResetToken;
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.EmailOutboxRepository;
+import com.example.usermicroservice.repository.PasswordResetTokenRepository;
+import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PasswordResetServiceTest {
+
+    private UserRepository userRepository;
+    private PasswordResetTokenRepository tokenRepository;
+    private EmailOutboxRepository outboxRepository;
+    private PasswordResetService passwordResetService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        tokenRepository = mock(PasswordResetTokenRepository.class);
+        outboxRepository = mock(EmailOutboxRepository.class);
+        UserService userService = new UserService(userRepository, new UserCache(userRepository, 100, Duration.ofMinutes(1)),
+                new RegisteredEmailIndex(userRepository, mock(PlatformTransactionManager.class), true, 1000, 0.01),
+                new PasswordHashingService(4, 2, 10, new SimpleMeterRegistry()), event -> { });
+        passwordResetService = new PasswordResetService(userService, tokenRepository, outboxRepository,
+                mock(PlatformTransactionManager.class), Duration.ofMinutes(30), "http://localhost:4200/reset-password?token=");
+    }
+
+    @Test
+    void testRequestResetStoresTokenHashAndQueuesEmail() {
+        // Arrange
+        User user = new User();
+        user.setId(7L);
+        user.setName("Ana");
+        user.setEmail("ana@example.com");
+        when(userRepository.findByEmail("ana@example.com")).thenReturn(Optional.of(user));
+
+        // Act
+        boolean requested = passwordResetService.requestReset("ana@example.com");
+
+        // Assert
+        assertTrue(requested);
+        ArgumentCaptor<PasswordResetToken> token = ArgumentCaptor.forClass(PasswordResetToken.class);
+        ArgumentCaptor<EmailOutboxMessage> email = ArgumentCaptor.forClass(EmailOutboxMessage.class);
+        verify(tokenRepository).save(token.capture());
+        verify(outboxRepository).save(email.capture());
+        assertEquals(7L, token.getValue().getUserId());
+        assertEquals(Duration.ofMinutes(30), Duration.between(token.getValue().getCreatedAt(), token.getValue().getExpiresAt()));
+        assertEquals("ana@example.com", email.getValue().getRecipient());
+        assertEquals(email.getValue().getCreatedAt(), email.getValue().getNextAttemptAt());
+        // El correo lleva el token en claro; la tabla solo su hash
+        Matcher link = Pattern.compile("reset-password\\?token=([A-Za-z0-9_-]{43})").matcher(email.getValue().getBody());
+        assertTrue(link.find());
+        assertFalse(token.getValue().getTokenHash().contains(link.group(1)));
+        assertEquals(PasswordResetService.hash(link.group(1)), token.getValue().getTokenHash());
+    }
+
+    @Test
+    void testRequestResetForUnknownEmail() {
+        // Arrange
+        when(userRepository.findByEmail("nadie@example.com")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertFalse(passwordResetService.requestReset("nadie@example.com"));
+        verifyNoInteractions(tokenRepository, outboxRepository);
+    }
+
+    @Test
+    void testHashIsSha256Hex() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", PasswordResetService.hash(""));
+    }
+}
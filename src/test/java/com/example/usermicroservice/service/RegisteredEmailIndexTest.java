@@ -0,0 +1,145 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RegisteredEmailIndexTest {
+
+    private UserRepository userRepository;
+    private RegisteredEmailIndex emailIndex;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        emailIndex = new RegisteredEmailIndex(userRepository, mock(PlatformTransactionManager.class), true, 1000, 0.01);
+    }
+
+    @Test
+    void testMightExistBeforeBuild() {
+        // Sin construir, el índice no puede descartar ningún email
+        assertFalse(emailIndex.isReady());
+        assertTrue(emailIndex.mightExist("anyone@example.com"));
+    }
+
+    @Test
+    void testRebuildFromRepository() {
+        // Arrange
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("John@Example.com", "jane@example.com"));
+
+        // Act
+        emailIndex.rebuild();
+
+        // Assert
+        assertTrue(emailIndex.isReady());
+        assertTrue(emailIndex.mightExist("john@example.com"));
+        assertTrue(emailIndex.mightExist("jane@example.com"));
+        assertFalse(emailIndex.mightExist("nobody@example.com"));
+    }
+
+    @Test
+    void testRebuildReadsFromPrimary() {
+        // Arrange: un email recién confirmado en el primario podría faltar aún en la réplica
+        List<Boolean> fromPrimary = new ArrayList<>();
+        when(userRepository.streamAllEmails()).thenAnswer(invocation -> {
+            fromPrimary.add(ReadRouting.readsFromPrimary());
+            return Stream.of("john@example.com");
+        });
+
+        // Act
+        emailIndex.rebuild();
+
+        // Assert
+        assertEquals(List.of(true), fromPrimary);
+    }
+
+    @Test
+    void testRebuildFailureKeepsIndexPermissive() {
+        // Arrange
+        when(userRepository.streamAllEmails()).thenThrow(new IllegalStateException("sin conexión"));
+
+        // Act
+        emailIndex.rebuild();
+
+        // Assert
+        assertFalse(emailIndex.isReady());
+        assertTrue(emailIndex.mightExist("nobody@example.com"));
+    }
+
+    @Test
+    void testEventsKeepIndexUpToDate() {
+        // Arrange
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("old@example.com"));
+        emailIndex.rebuild();
+        UserSnapshot before = new UserSnapshot(1L, "John", "old@example.com", "USER", LocalDateTime.now());
+        UserSnapshot after = new UserSnapshot(1L, "John", "new@example.com", "USER", before.createdAt());
+
+        // Act
+        emailIndex.onUserChanged(UserChangedEvent.created(new UserSnapshot(2L, "Jane", "jane@example.com", "USER", null)));
+        emailIndex.onUserChanged(UserChangedEvent.updated(before, after));
+
+        // Assert: old@example.com vino en la copia de la tabla, así que no se resta (falso positivo hasta reconstruir)
+        assertTrue(emailIndex.mightExist("jane@example.com"));
+        assertTrue(emailIndex.mightExist("new@example.com"));
+        assertTrue(emailIndex.mightExist("old@example.com"));
+    }
+
+    @Test
+    void testEmailAddedByThisInstanceIsRemovedOnDelete() {
+        // Arrange
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        emailIndex.rebuild();
+        UserSnapshot jane = new UserSnapshot(2L, "Jane", "jane@example.com", "USER", null);
+        emailIndex.onUserChanged(UserChangedEvent.created(jane));
+
+        // Act
+        emailIndex.onUserChanged(UserChangedEvent.deleted(jane));
+
+        // Assert
+        assertFalse(emailIndex.mightExist("jane@example.com"));
+    }
+
+    @Test
+    void testDeletingUnknownEmailDoesNotHideCollidingEmail() {
+        // Arrange: filtro mínimo (16 contadores), así dos emails cualesquiera comparten contadores
+        RegisteredEmailIndex tiny = new RegisteredEmailIndex(userRepository, mock(PlatformTransactionManager.class), true, 1, 0.5);
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("real@example.com"));
+        tiny.rebuild();
+
+        // Act: un usuario creado en otra instancia (no está en el filtro) se borra desde esta
+        for (int i = 0; i < 20; i++) {
+            tiny.onUserChanged(UserChangedEvent.deleted(
+                    new UserSnapshot((long) i, "Otro", "ghost" + i + "@example.com", "USER", null)));
+        }
+
+        // Assert
+        assertTrue(tiny.mightExist("real@example.com"));
+    }
+
+    @Test
+    void testFalsePositiveRateIsBounded() {
+        // Arrange
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("user" + i + "@example.com"));
+
+        // Act
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> filter.mightContain("other" + i + "@example.com"))
+                .count();
+
+        // Assert
+        IntStream.range(0, 10_000).forEach(i -> assertTrue(filter.mightContain("user" + i + "@example.com")));
+        assertTrue(falsePositives < 300, "Tasa de falsos positivos demasiado alta: " + falsePositives);
+    }
+}
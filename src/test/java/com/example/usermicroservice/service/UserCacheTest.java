@@ -0,0 +1,262 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserCacheTest {
+
+    private static final int CONCURRENT_CALLERS = 20;
+
+    private UserRepository userRepository;
+    private UserCache userCache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userCache = new UserCache(userRepository, 100, Duration.ofMinutes(1));
+        meterRegistry = new SimpleMeterRegistry();
+        userCache.bindTo(meterRegistry);
+    }
+
+    @Test
+    void testFindByEmailIsCached() {
+        // Arrange
+        User user = newUser(1L, "john@example.com");
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(user));
+
+        // Act
+        userCache.findByEmail("john@example.com");
+        Optional<User> cached = userCache.findByEmail("john@example.com");
+        Optional<User> byId = userCache.findById(1L);
+
+        // Assert
+        assertSame(user, cached.orElseThrow());
+        assertSame(user, byId.orElseThrow());
+        verify(userRepository, times(1)).findByEmail("john@example.com");
+        verify(userRepository, never()).findById(any());
+        assertEquals(3, userCache.stats().hitCount());
+    }
+
+    @Test
+    void testFindByEmailDoesNotReturnDifferentlyCasedEmail() {
+        // Arrange
+        User user = newUser(1L, "john@example.com");
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(user));
+        when(userRepository.findByEmail("JOHN@example.com")).thenReturn(Optional.empty());
+        userCache.findByEmail("john@example.com");
+
+        // Act
+        Optional<User> result = userCache.findByEmail("JOHN@example.com");
+
+        // Assert
+        // La consulta a la base de datos es exacta; la caché no debe cambiar ese comportamiento
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testEvictForcesReload() {
+        // Arrange
+        User user = newUser(1L, "john@example.com");
+        when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(user));
+        userCache.findByEmail("john@example.com");
+
+        // Act
+        userCache.evict(1L);
+        userCache.findByEmail("john@example.com");
+
+        // Assert
+        verify(userRepository, times(2)).findByEmail("john@example.com");
+    }
+
+    @Test
+    void testMissesAreNotCached() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act
+        userCache.findById(1L);
+        userCache.findById(1L);
+
+        // Assert
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testRecentlyWrittenUserIsLoadedFromPrimary() {
+        // Arrange: registra a qué base iría cada carga
+        List<Boolean> fromPrimary = new ArrayList<>();
+        when(userRepository.findById(anyLong())).thenAnswer(invocation -> {
+            fromPrimary.add(ReadRouting.readsFromPrimary());
+            return Optional.of(newUser(invocation.getArgument(0), "john@example.com"));
+        });
+
+        // Act
+        userCache.findById(2L);
+        userCache.evict(1L);
+        userCache.findById(1L);
+
+        // Assert: solo el usuario recién modificado evita la réplica
+        assertEquals(List.of(false, true), fromPrimary);
+    }
+
+    @Test
+    void testConcurrentMissesShareOneDatabaseLoad() throws Exception {
+        // Arrange: la consulta queda bloqueada hasta que todos los demás llamadores esperan la carga en curso
+        CountDownLatch release = new CountDownLatch(1);
+        User user = newUser(1L, "john@example.com");
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(user);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CALLERS);
+        try {
+            // Act
+            List<Future<Optional<User>>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CALLERS; i++) {
+                results.add(executor.submit(() -> userCache.findById(1L)));
+            }
+            awaitLoads("coalesced", CONCURRENT_CALLERS - 1);
+            release.countDown();
+
+            // Assert
+            for (Future<Optional<User>> result : results) {
+                assertSame(user, result.get(5, TimeUnit.SECONDS).orElseThrow());
+            }
+            verify(userRepository, times(1)).findById(1L);
+            assertEquals(1, loads("executed"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentEmailMissesShareOneDatabaseLoad() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findByEmail("john@example.com")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(newUser(1L, "john@example.com"));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CALLERS);
+        try {
+            // Act
+            List<Future<Optional<User>>> results = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CALLERS; i++) {
+                results.add(executor.submit(() -> userCache.findByEmail("john@example.com")));
+            }
+            awaitLoads("coalesced", CONCURRENT_CALLERS - 1);
+            release.countDown();
+
+            // Assert
+            for (Future<Optional<User>> result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS).isPresent());
+            }
+            verify(userRepository, times(1)).findByEmail("john@example.com");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLoadFailureReachesEveryWaitingCaller() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("base de datos caída");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            Future<Optional<User>> first = executor.submit(() -> userCache.findById(1L));
+            Future<Optional<User>> second = executor.submit(() -> userCache.findById(1L));
+            awaitLoads("coalesced", 1);
+            release.countDown();
+
+            // Assert
+            for (Future<Optional<User>> result : List.of(first, second)) {
+                ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, error.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // El fallo no queda guardado: la siguiente llamada vuelve a consultar
+        reset(userRepository);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(newUser(1L, "john@example.com")));
+        assertTrue(userCache.findById(1L).isPresent());
+    }
+
+    @Test
+    void testLoadOverlappingWriteIsNotCachedNorShared() throws Exception {
+        // Arrange: la primera carga lee la versión anterior y se bloquea antes de terminar
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        User before = newUser(1L, "old@example.com");
+        User after = newUser(1L, "new@example.com");
+        when(userRepository.findById(1L))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return Optional.of(before);
+                })
+                .thenReturn(Optional.of(after));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<User>> stale = executor.submit(() -> userCache.findById(1L));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // Act: la escritura termina mientras la carga anterior sigue en curso
+            userCache.evict(1L);
+            Optional<User> afterWrite = userCache.findById(1L);
+            release.countDown();
+            stale.get(5, TimeUnit.SECONDS);
+
+            // Assert: quien llega tras la escritura no espera la carga anterior, y esta no pisa la caché
+            assertSame(after, afterWrite.orElseThrow());
+            assertSame(after, userCache.findById(1L).orElseThrow());
+            verify(userRepository, times(2)).findById(1L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitLoads(String outcome, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loads(outcome) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, loads(outcome));
+    }
+
+    private double loads(String outcome) {
+        return meterRegistry.get("users.cache.loads").tag("outcome", outcome).functionCounter().count();
+    }
+
+    private static User newUser(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserChangeFeedTest {
+
+    @Test
+    void testChangesGetIncreasingOffsets() {
+        // Arrange
+        UserChangeFeed feed = new UserChangeFeed(10);
+
+        // Act
+        feed.onUserChanged(UserChangedEvent.created(snapshot(1L)));
+        feed.onUserChanged(UserChangedEvent.deleted(snapshot(1L)));
+
+        // Assert
+        UserChangeFeed.Batch batch = feed.read(0, 10);
+        assertFalse(batch.gap());
+        assertEquals(2, batch.changes().size());
+        assertEquals(1, batch.changes().get(0).offset());
+        assertEquals(UserChangedEvent.ChangeType.CREATED, batch.changes().get(0).type());
+        assertEquals(2, batch.changes().get(1).offset());
+        assertEquals(1L, batch.changes().get(1).user().id(), "el borrado lleva el estado anterior");
+        assertTrue(feed.read(2, 10).changes().isEmpty());
+    }
+
+    @Test
+    void testUpdateCarriesFullRowAndVersion() {
+        // Arrange: edición de perfil, que solo cambia dirección y teléfono
+        UserChangeFeed feed = new UserChangeFeed(10);
+        User user = new User();
+        user.setId(1L);
+        user.setName("Ana");
+        user.setEmail("ana@example.com");
+        user.setRole("USER");
+        user.setDireccion("Calle 1");
+        user.setTelefono("555-1234");
+        user.setVersion(3L);
+
+        // Act
+        feed.onUserChanged(UserChangedEvent.updated(null, UserSnapshot.from(user)));
+
+        // Assert
+        assertEquals(UserResponse.from(user), feed.read(0, 10).changes().get(0).user());
+    }
+
+    @Test
+    void testReadIsLimitedToMax() {
+        UserChangeFeed feed = new UserChangeFeed(10);
+        for (long id = 1; id <= 5; id++) {
+            feed.onUserChanged(UserChangedEvent.created(snapshot(id)));
+        }
+
+        UserChangeFeed.Batch batch = feed.read(1, 2);
+
+        assertEquals(2, batch.changes().size());
+        assertEquals(2, batch.changes().get(0).offset());
+        assertEquals(3, batch.changes().get(1).offset());
+    }
+
+    @Test
+    void testReaderOvertakenByBufferSeesGap() {
+        // Arrange: un búfer de 3 cambios recibe 5
+        UserChangeFeed feed = new UserChangeFeed(3);
+        for (long id = 1; id <= 5; id++) {
+            feed.onUserChanged(UserChangedEvent.created(snapshot(id)));
+        }
+
+        // Act & Assert: el offset 2 (cambios 3 a 5) sigue disponible; el 1 ya no
+        assertFalse(feed.read(2, 10).gap());
+        assertEquals(3, feed.read(2, 10).changes().size());
+        assertTrue(feed.read(1, 10).gap());
+        assertTrue(feed.read(6, 10).gap(), "un offset futuro no es de este arranque");
+    }
+
+    @Test
+    void testListenersAreNotifiedAfterEachChange() {
+        // Arrange
+        UserChangeFeed feed = new UserChangeFeed(10);
+        AtomicInteger calls = new AtomicInteger();
+        Runnable listener = calls::incrementAndGet;
+        feed.addListener(listener);
+
+        // Act
+        feed.onUserChanged(UserChangedEvent.created(snapshot(1L)));
+        feed.removeListener(listener);
+        feed.onUserChanged(UserChangedEvent.created(snapshot(2L)));
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(2, feed.latestOffset());
+    }
+
+    private static UserSnapshot snapshot(Long id) {
+        return new UserSnapshot(id, "Usuario " + id, "u" + id + "@example.com", "USER", null);
+    }
+}
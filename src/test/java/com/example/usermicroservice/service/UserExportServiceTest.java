@@ -0,0 +1,98 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserExportServiceTest {
+
+    private UserRepository userRepository;
+    private EntityManager entityManager;
+    private UserExportService userExportService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        entityManager = mock(EntityManager.class);
+        userExportService = new UserExportService(userRepository, entityManager);
+    }
+
+    @Test
+    void testExportNdjson() throws Exception {
+        // Arrange
+        User user = newUser(1L, "John Doe", "john@example.com");
+        when(userRepository.streamAll()).thenReturn(Stream.of(user));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = userExportService.export(UserDataFormat.NDJSON, out);
+
+        // Assert
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertEquals(1, rows);
+        assertTrue(body.startsWith("{\"id\":1,\"name\":\"John Doe\",\"email\":\"john@example.com\""));
+        assertTrue(body.endsWith("}\n"));
+        assertFalse(body.contains("secret"), "La contraseña no debe exportarse");
+        verify(entityManager).detach(user);
+    }
+
+    @Test
+    void testExportCsvEscapesFields() throws Exception {
+        // Arrange
+        User user = newUser(2L, "Doe, \"John\"", "john@example.com");
+        when(userRepository.streamAll()).thenReturn(Stream.of(user));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        userExportService.export(UserDataFormat.CSV, out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,name,email,role,created_at,direccion,telefono", lines[0]);
+        assertEquals("2,\"Doe, \"\"John\"\"\",john@example.com,USER,2024-01-01T10:00,,", lines[1]);
+    }
+
+    @Test
+    void testExportClearsPersistenceContextPeriodically() throws Exception {
+        // Arrange
+        int total = UserExportService.CLEAR_INTERVAL * 2 + 5;
+        when(userRepository.streamAll()).thenReturn(IntStream.rangeClosed(1, total)
+                .mapToObj(i -> newUser((long) i, "User " + i, "user" + i + "@example.com")));
+
+        // Act
+        long rows = userExportService.export(UserDataFormat.NDJSON, new ByteArrayOutputStream());
+
+        // Assert
+        assertEquals(total, rows);
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void testFromParam() {
+        assertEquals(UserDataFormat.NDJSON, UserDataFormat.fromParam(null));
+        assertEquals(UserDataFormat.CSV, UserDataFormat.fromParam("CSV"));
+        assertThrows(IllegalArgumentException.class, () -> UserDataFormat.fromParam("xml"));
+    }
+
+    private static User newUser(Long id, String name, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole("USER");
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 10, 0));
+        return user;
+    }
+}
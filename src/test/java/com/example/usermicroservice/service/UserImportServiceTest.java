@@ -0,0 +1,150 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.ImportResult;
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // el servicio gestiona sus propias transacciones por lote
+class UserImportServiceTest {
+
+    private static final String HASH = "$2a$04$abcdefghijklmnopqrstuu5p0uVPRg7ZnEI7Q2TJIvBqNqa2PYWv6";
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PasswordHashingService passwordHashingService;
+    private List<Object> events;
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        passwordHashingService = new PasswordHashingService(4, 2, 10, new SimpleMeterRegistry());
+        events = new ArrayList<>();
+        userImportService = new UserImportService(entityManager, userRepository, passwordHashingService,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper().findAndRegisterModules(),
+                transactionManager, events::add, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void testImportNdjsonInBatches() throws Exception {
+        // Arrange
+        String body = """
+                {"name":"Ana","email":"ana@example.com","password":"%s","role":"USER"}
+                {"name":"Luis","email":"luis@example.com","password":"plain","role":"ADMIN","telefono":"123"}
+                {"name":"Eva","email":"eva@example.com","password":"%s","role":"USER"}
+                """.formatted(HASH, HASH);
+
+        // Act
+        ImportResult result = userImportService.importUsers(UserDataFormat.NDJSON, stream(body));
+
+        // Assert
+        assertEquals(new ImportResult(3, 3, 0, List.of(), false), result);
+        assertEquals(3, userRepository.count());
+        assertEquals(HASH, userRepository.findByEmail("ana@example.com").orElseThrow().getPassword());
+        User luis = userRepository.findByEmail("luis@example.com").orElseThrow();
+        assertTrue(passwordHashingService.isHashed(luis.getPassword()), "Las contraseñas en claro se guardan con hash");
+        assertEquals("123", luis.getTelefono());
+        assertEquals(3, events.size());
+        assertTrue(events.stream().allMatch(event -> ((UserChangedEvent) event).type() == UserChangedEvent.ChangeType.CREATED));
+    }
+
+    @Test
+    void testImportCsvReportsInvalidAndDuplicateRows() throws Exception {
+        // Arrange
+        User existing = new User();
+        existing.setName("Ana");
+        existing.setEmail("ana@example.com");
+        existing.setPassword(HASH);
+        existing.setRole("USER");
+        userRepository.save(existing);
+        String body = "name,email,password,role,direccion,telefono\r\n"
+                + "Ana,ana@example.com," + HASH + ",USER,,\r\n"
+                + "\"Pérez, Juan\",juan@example.com," + HASH + ",USER,\"Calle \"\"1\"\"\",\r\n"
+                + ",sin-nombre@example.com," + HASH + ",USER,,\r\n"
+                + "Juan,juan@example.com," + HASH + ",USER,,\r\n";
+
+        // Act
+        ImportResult result = userImportService.importUsers(UserDataFormat.CSV, stream(body));
+
+        // Assert
+        assertEquals(4, result.received());
+        assertEquals(1, result.imported());
+        assertEquals(3, result.failed());
+        assertEquals(List.of(1L, 3L, 4L), result.errors().stream().map(ImportResult.RowError::row).sorted().toList());
+        User juan = userRepository.findByEmail("juan@example.com").orElseThrow();
+        assertEquals("Pérez, Juan", juan.getName());
+        assertEquals("Calle \"1\"", juan.getDireccion());
+    }
+
+    @Test
+    void testImportStopsOnMalformedJson() throws Exception {
+        // Arrange
+        String body = "{\"name\":\"Ana\",\"email\":\"ana@example.com\",\"password\":\"" + HASH + "\",\"role\":\"USER\"}\n{\"name\":";
+
+        // Act
+        ImportResult result = userImportService.importUsers(UserDataFormat.NDJSON, stream(body));
+
+        // Assert
+        assertEquals(1, result.imported());
+        assertEquals(1, result.failed());
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void testImportStopsOnUnclosedCsvQuote() throws Exception {
+        // Arrange: con lotes de 2 las dos primeras filas ya están confirmadas al llegar a la comilla sin cerrar
+        String body = "name,email,password,role\n"
+                + "Ana,ana@example.com," + HASH + ",USER\n"
+                + "Luis,luis@example.com," + HASH + ",USER\n"
+                + "Eva,eva@example.com," + HASH + ",USER\n"
+                + "\"Juan,juan@example.com," + HASH + ",USER\n";
+
+        // Act
+        ImportResult result = userImportService.importUsers(UserDataFormat.CSV, stream(body));
+
+        // Assert
+        assertEquals(4, result.received());
+        assertEquals(3, result.imported());
+        assertEquals(1, result.failed());
+        assertEquals(List.of(new ImportResult.RowError(4, "CSV mal formado: Comillas sin cerrar en el CSV")),
+                result.errors());
+        assertEquals(3, userRepository.count());
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
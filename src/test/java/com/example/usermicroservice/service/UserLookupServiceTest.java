@@ -0,0 +1,110 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserLookup;
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.entity.User;
+import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserLookupServiceTest {
+
+    private UserRepository userRepository;
+    private UserCache userCache;
+    private SimpleMeterRegistry meterRegistry;
+    private UserLookupService lookupService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userCache = new UserCache(userRepository, 100, Duration.ofMinutes(1));
+        meterRegistry = new SimpleMeterRegistry();
+        lookupService = new UserLookupService(userRepository, userCache, meterRegistry);
+        // La base de datos devuelve las filas de los ids pares, en cualquier orden
+        when(userRepository.findResponsesByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id % 2 == 0).sorted().map(UserLookupServiceTest::response).toList();
+        });
+    }
+
+    @Test
+    void testResultsFollowRequestOrderAndFlagMissingIds() {
+        // Act
+        UserLookup result = lookupService.lookup(List.of(8L, 3L, 2L, 8L, 5L));
+
+        // Assert
+        assertEquals(List.of(8L, 2L), result.items().stream().map(UserResponse::id).toList());
+        assertEquals(List.of(3L, 5L), result.missing());
+        verify(userRepository, times(1)).findResponsesByIdIn(List.of(8L, 3L, 2L, 5L));
+    }
+
+    @Test
+    void testCachedUsersAreNotQueried() {
+        // Arrange: el usuario 4 ya está en caché
+        User cached = new User();
+        cached.setId(4L);
+        cached.setName("en caché");
+        when(userRepository.findById(4L)).thenReturn(Optional.of(cached));
+        userCache.findById(4L);
+
+        // Act
+        UserLookup result = lookupService.lookup(List.of(4L, 6L));
+
+        // Assert
+        assertEquals("en caché", result.items().get(0).name());
+        assertEquals(6L, result.items().get(1).id());
+        verify(userRepository).findResponsesByIdIn(List.of(6L));
+        assertEquals(1, meterRegistry.get("users.lookup.ids").tag("source", "cache").counter().count());
+        assertEquals(1, meterRegistry.get("users.lookup.ids").tag("source", "database").counter().count());
+    }
+
+    @Test
+    void testLargeRequestIsSplitIntoOracleSizedChunks() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, 2_500).boxed().toList();
+
+        // Act
+        UserLookup result = lookupService.lookup(ids);
+
+        // Assert
+        assertEquals(1_250, result.items().size());
+        assertEquals(1_250, result.missing().size());
+        verify(userRepository, times(3)).findResponsesByIdIn(argThat(chunk -> chunk.size() <= UserLookupService.CHUNK_SIZE));
+        assertEquals(3, meterRegistry.get("users.lookup.queries").counter().count());
+    }
+
+    @Test
+    void testEmptyRequestDoesNotQuery() {
+        UserLookup result = lookupService.lookup(List.of());
+
+        assertTrue(result.items().isEmpty());
+        assertTrue(result.missing().isEmpty());
+        verify(userRepository, never()).findResponsesByIdIn(any());
+    }
+
+    @Test
+    void testInvalidRequestsAreRejected() {
+        List<Long> tooMany = LongStream.rangeClosed(1, UserLookupService.MAX_IDS + 1).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> lookupService.lookup(tooMany));
+        assertThrows(IllegalArgumentException.class, () -> lookupService.lookup(null));
+        assertThrows(IllegalArgumentException.class, () -> lookupService.lookup(Arrays.asList(1L, null)));
+        verify(userRepository, never()).findResponsesByIdIn(any());
+    }
+
+    private static UserResponse response(Long id) {
+        return new UserResponse(id, "usuario " + id, "u" + id + "@example.com", "USER", null, null, null, 0L);
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserSearchIndexTest {
+
+    private UserRepository userRepository;
+    private UserSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        searchIndex = new UserSearchIndex(userRepository, mock(PlatformTransactionManager.class), true, 1000);
+    }
+
+    @Test
+    void testNotReadyBeforeBuild() {
+        // Sin construir, el índice no responde y el servicio consulta la base de datos
+        assertFalse(searchIndex.isReady());
+        assertEquals(List.of(), searchIndex.search("maria", 10).hits());
+    }
+
+    @Test
+    void testTermsIgnoreCaseAccentsAndEmailSeparators() {
+        // Act
+        Set<String> terms = SearchTerms.of("María José Pérez", "Maria.Perez+news@Example.com");
+
+        // Assert
+        assertEquals(Set.of("maria", "jose", "perez", "maria.perez+news@example.com", "news"), terms);
+    }
+
+    @Test
+    void testPrefixSearchRanksExactMatchesFirst() {
+        // Arrange
+        build(user(1L, "Mariana Soto", "msoto@example.com"),
+                user(2L, "Maria Rojas", "mrojas@example.com"),
+                user(3L, "Pedro Marín", "pmarin@example.com"),
+                user(4L, "Ana Díaz", "maria.diaz@example.com"));
+
+        // Act
+        List<Long> ids = ids(searchIndex.search("maria", 10));
+
+        // Assert
+        // Nombre exacto, luego prefijos (nombre o email) por id y al final "marín", a un error de tipeo
+        assertEquals(List.of(2L, 1L, 4L, 3L), ids);
+    }
+
+    @Test
+    void testAllTokensMustMatchAndScoresAdd() {
+        // Arrange
+        build(user(1L, "Maria Rojas", "a@example.com"),
+                user(2L, "Maria Soto", "b@example.com"),
+                user(3L, "Mario Rojas", "c@example.com"));
+
+        // Act
+        List<UserSearchIndex.Hit> hits = searchIndex.search("Maria roj", 10).hits();
+
+        // Assert
+        // "Mario" coincide con "maria" a un error de tipeo; "Maria Soto" no tiene ningún término "roj..."
+        assertEquals(List.of(new UserSearchIndex.Hit(1L, UserSearchIndex.EXACT + UserSearchIndex.PREFIX),
+                new UserSearchIndex.Hit(3L, UserSearchIndex.FUZZY + UserSearchIndex.PREFIX)), hits);
+    }
+
+    @Test
+    void testSearchByEmailPrefix() {
+        // Arrange
+        build(user(1L, "John", "john.smith@example.com"), user(2L, "Jane", "jane@example.com"));
+
+        // Act & Assert
+        assertEquals(List.of(1L), ids(searchIndex.search("john.sm", 10)));
+        assertEquals(List.of(1L), ids(searchIndex.search("smith", 10)));
+        assertEquals(List.of(2L), ids(searchIndex.search("JANE@EXAMPLE.COM", 10)));
+    }
+
+    @Test
+    void testFuzzyMatchToleratesOneTypo() {
+        // Arrange
+        build(user(1L, "Luis Gonzalez", "luis@example.com"), user(2L, "Ana Gomez", "ana@example.com"));
+
+        // Act
+        List<UserSearchIndex.Hit> substituted = searchIndex.search("gonzales", 10).hits();
+        List<UserSearchIndex.Hit> extraChar = searchIndex.search("gonnzalez", 10).hits();
+
+        // Assert
+        assertEquals(List.of(new UserSearchIndex.Hit(1L, UserSearchIndex.FUZZY)), substituted);
+        assertEquals(List.of(1L), ids(extraChar));
+    }
+
+    @Test
+    void testLimitAndTieBreakById() {
+        // Arrange
+        build(user(3L, "Ana Uno", "u3@example.com"),
+                user(1L, "Ana Dos", "u1@example.com"),
+                user(2L, "Ana Tres", "u2@example.com"));
+
+        // Act & Assert
+        assertEquals(List.of(1L, 2L), ids(searchIndex.search("ana", 2)));
+    }
+
+    @Test
+    void testBudgetStartsFromRarestToken() {
+        // Arrange: 30 "Ana" y una sola "Ana Zapata" con el id más alto, con un presupuesto de 10 candidatos
+        searchIndex = new UserSearchIndex(userRepository, mock(PlatformTransactionManager.class), true, 10);
+        List<UserSnapshot> users = new ArrayList<>();
+        for (long id = 1; id <= 30; id++) {
+            users.add(user(id, "Ana Rojas", "ana" + id + "@example.com"));
+        }
+        users.add(user(31L, "Ana Zapata", "zapata@example.com"));
+        build(users.toArray(UserSnapshot[]::new));
+
+        // Act
+        UserSearchIndex.Result narrow = searchIndex.search("ana zapata", 10);
+        UserSearchIndex.Result broad = searchIndex.search("ana", 10);
+
+        // Assert
+        // "zapata" es el token más selectivo: los 30 "ana" ya no agotan el presupuesto antes de intersecar
+        assertEquals(List.of(31L), ids(narrow));
+        assertFalse(narrow.truncated());
+        assertEquals(10, broad.hits().size());
+        assertTrue(broad.truncated());
+    }
+
+    @Test
+    void testSegmentPostingsAreSortedAndDeduplicated() {
+        // Arrange
+        TermSegment.Builder builder = new TermSegment.Builder();
+        builder.add("rojas", 9L);
+        builder.add("ana", 5L);
+        builder.add("rojas", 2L);
+        builder.add("ana", 5L);
+        builder.add("anabel", 1L);
+
+        // Act
+        TermSegment segment = builder.build();
+        List<Long> visited = new ArrayList<>();
+        segment.scanPrefix("ana", (exact, id) -> visited.add(exact ? id : -id));
+
+        // Assert
+        assertEquals(3, segment.termCount());
+        assertEquals(4, segment.entryCount());
+        assertEquals(List.of(5L, -1L), visited);
+        assertEquals(2, segment.countPrefix("ana"));
+        assertEquals(2, segment.countPrefix("r"));
+        assertEquals(0, segment.countPrefix("z"));
+    }
+
+    @Test
+    void testEventsKeepIndexUpToDate() {
+        // Arrange
+        build(user(1L, "Old Name", "old@example.com"), user(2L, "Gone", "gone@example.com"));
+
+        // Act
+        searchIndex.onUserChanged(UserChangedEvent.created(user(3L, "New User", "new@example.com")));
+        searchIndex.onUserChanged(UserChangedEvent.updated(null, user(1L, "Renamed", "old@example.com")));
+        searchIndex.onUserChanged(UserChangedEvent.deleted(user(2L, "Gone", "gone@example.com")));
+
+        // Assert
+        assertEquals(List.of(3L), ids(searchIndex.search("new", 10)));
+        assertEquals(List.of(1L), ids(searchIndex.search("renamed", 10)));
+        assertEquals(List.of(), searchIndex.search("name", 10).hits());
+        assertEquals(List.of(), searchIndex.search("gone", 10).hits());
+    }
+
+    @Test
+    void testRebuildDiscardsChangesAlreadyInTable() {
+        // Arrange
+        build(user(1L, "Old Name", "old@example.com"));
+        searchIndex.onUserChanged(UserChangedEvent.updated(null, user(1L, "Renamed", "old@example.com")));
+        assertEquals(1, searchIndex.pendingChanges());
+
+        // Act
+        build(user(1L, "Renamed", "old@example.com"));
+
+        // Assert
+        assertEquals(0, searchIndex.pendingChanges());
+        assertEquals(List.of(1L), ids(searchIndex.search("renamed", 10)));
+        assertEquals(List.of(), searchIndex.search("old name", 10).hits());
+    }
+
+    @Test
+    void testRebuildFailureKeepsPreviousIndex() {
+        // Arrange
+        build(user(1L, "Maria", "maria@example.com"));
+        when(userRepository.streamSnapshots()).thenThrow(new IllegalStateException("sin conexión"));
+
+        // Act
+        searchIndex.rebuild();
+
+        // Assert
+        assertTrue(searchIndex.isReady());
+        assertEquals(List.of(1L), ids(searchIndex.search("maria", 10)));
+    }
+
+    @Test
+    void testRebuildReadsFromPrimary() {
+        // Arrange: con réplica, una lectura atrasada perdería cambios que el delta ya descartó
+        List<Boolean> fromPrimary = new ArrayList<>();
+        when(userRepository.streamSnapshots()).thenAnswer(invocation -> {
+            fromPrimary.add(ReadRouting.readsFromPrimary());
+            return Stream.of(user(1L, "María", "maria@example.com"));
+        });
+
+        // Act
+        searchIndex.rebuild();
+
+        // Assert
+        assertEquals(List.of(true), fromPrimary);
+    }
+
+    private void build(UserSnapshot... users) {
+        when(userRepository.streamSnapshots()).thenReturn(Stream.of(users));
+        searchIndex.rebuild();
+    }
+
+    private static UserSnapshot user(Long id, String name, String email) {
+        return new UserSnapshot(id, name, email, "USER", null);
+    }
+
+    private static List<Long> ids(List<UserSearchIndex.Hit> hits) {
+        return hits.stream().map(UserSearchIndex.Hit::id).toList();
+    }
+
+    private static List<Long> ids(UserSearchIndex.Result result) {
+        return ids(result.hits());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserResponse;
+import com.example.usermicroservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserSearchServiceTest {
+
+    private UserRepository userRepository;
+    private UserSearchIndex searchIndex;
+    private UserSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        searchIndex = mock(UserSearchIndex.class);
+        searchService = new UserSearchService(userRepository, searchIndex);
+    }
+
+    @Test
+    void testSearchKeepsIndexOrder() {
+        // Arrange
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("maria", 10)).thenReturn(new UserSearchIndex.Result(List.of(
+                new UserSearchIndex.Hit(7L, 4), new UserSearchIndex.Hit(3L, 2), new UserSearchIndex.Hit(5L, 1)), true));
+        // El usuario 5 fue borrado desde otra instancia
+        when(userRepository.findResponsesByIdIn(List.of(7L, 3L, 5L))).thenReturn(List.of(response(3L), response(7L)));
+
+        // Act
+        UserSearchService.Result result = searchService.search("maria", null);
+
+        // Assert
+        assertEquals(List.of(7L, 3L), result.users().stream().map(UserResponse::id).toList());
+        assertTrue(result.truncated());
+    }
+
+    @Test
+    void testSearchWithoutHitsSkipsDatabase() {
+        // Arrange
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("nadie", UserSearchService.MAX_LIMIT)).thenReturn(new UserSearchIndex.Result(List.of(), false));
+
+        // Act
+        UserSearchService.Result result = searchService.search("nadie", 500);
+
+        // Assert
+        assertTrue(result.users().isEmpty());
+        verify(userRepository, never()).findResponsesByIdIn(any());
+    }
+
+    @Test
+    void testSearchFallsBackToDatabaseUntilIndexIsReady() {
+        // Arrange
+        when(searchIndex.isReady()).thenReturn(false);
+        when(userRepository.searchByPrefix("50\\%\\_x\\_y", Limit.of(5))).thenReturn(List.of(response(1L)));
+
+        // Act
+        UserSearchService.Result result = searchService.search("  50%_X_y otra", 5);
+
+        // Assert
+        assertEquals(List.of(1L), result.users().stream().map(UserResponse::id).toList());
+        assertFalse(result.truncated());
+        verify(searchIndex, never()).search(any(), anyInt());
+    }
+
+    @Test
+    void testSearchRejectsInvalidQuery() {
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(" ", null));
+        assertThrows(IllegalArgumentException.class, () -> searchService.search("x".repeat(101), null));
+    }
+
+    private static UserResponse response(Long id) {
+        return new UserResponse(id, "User " + id, "user" + id + "@example.com", "USER", null, null, null, 0L);
+    }
+}
@@ -1,11 +1,21 @@
 package com.example.usermicroservice.service;
 
+import com.example.usermicroservice.dto.UserPage;
+import com.example.usermicroservice.dto.UserPatchRequest;
+import com.example.usermicroservice.dto.UserResponse;
 import com.example.usermicroservice.entity.User;
 import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,41 +24,83 @@ import static org.mockito.Mockito.*;
 class UserServiceTest {
 
     private UserRepository userRepository;
+    private RegisteredEmailIndex emailIndex;
+    private PasswordHashingService passwordHashingService;
+    private List<Object> events;
     private UserService userService;
 
     @BeforeEach
     void setUp() {
         userRepository = mock(UserRepository.class);
-        userService = new UserService(userRepository);
+        emailIndex = new RegisteredEmailIndex(userRepository, mock(PlatformTransactionManager.class), true, 1000, 0.01);
+        passwordHashingService = new PasswordHashingService(4, 2, 10, new SimpleMeterRegistry());
+        events = new ArrayList<>();
+        userService = new UserService(userRepository, new UserCache(userRepository, 100, Duration.ofMinutes(1)),
+                emailIndex, passwordHashingService, events::add);
     }
 
     @Test
-    void testGetAllUsers() {
+    void testGetUsersPageFirstPage() {
         // Arrange
         User user1 = new User();
         user1.setId(1L);
         user1.setName("User One");
-        user1.setEmail("user1@example.com");
-        user1.setPassword("password1");
-        user1.setRole("USER");
 
         User user2 = new User();
         user2.setId(2L);
         user2.setName("User Two");
-        user2.setEmail("user2@example.com");
-        user2.setPassword("password2");
-        user2.setRole("ADMIN");
 
-        when(userRepository.findAll()).thenReturn(List.of(user1, user2));
+        User user3 = new User();
+        user3.setId(3L);
+        user3.setName("User Three");
+
+        when(userRepository.findPageAfter(0L, null, null, null, Limit.of(3)))
+                .thenReturn(List.of(UserResponse.from(user1), UserResponse.from(user2), UserResponse.from(user3)));
+
+        // Act
+        UserPage page = userService.getUsersPage(null, 2, null, null, null);
+
+        // Assert
+        assertEquals(2, page.items().size());
+        assertEquals("User One", page.items().get(0).name());
+        assertEquals("User Two", page.items().get(1).name());
+        assertEquals(2L, PageCursor.decode(page.nextCursor()));
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetUsersPageLastPage() {
+        // Arrange
+        User user = new User();
+        user.setId(5L);
+        when(userRepository.findPageAfter(4L, "ADMIN", null, null, Limit.of(11))).thenReturn(List.of(UserResponse.from(user)));
+
+        // Act
+        UserPage page = userService.getUsersPage(PageCursor.encode(4L), 10, "ADMIN", null, null);
+
+        // Assert
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testGetUsersPageSizeIsCapped() {
+        // Arrange
+        when(userRepository.findPageAfter(0L, null, null, null, Limit.of(UserService.MAX_PAGE_SIZE + 1))).thenReturn(List.of());
 
         // Act
-        List<User> users = userService.getAllUsers();
+        UserPage page = userService.getUsersPage(null, 1_000_000, null, null, null);
 
         // Assert
-        assertEquals(2, users.size());
-        assertEquals("User One", users.get(0).getName());
-        assertEquals("User Two", users.get(1).getName());
-        verify(userRepository, times(1)).findAll();
+        assertTrue(page.items().isEmpty());
+        verify(userRepository).findPageAfter(0L, null, null, null, Limit.of(UserService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testGetUsersPageInvalidCursor() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage("not-a-cursor", null, null, null, null));
+        verify(userRepository, never()).findPageAfter(anyLong(), any(), any(), any(), any());
     }
 
     @Test
@@ -102,7 +154,43 @@ class UserServiceTest {
         // Assert
         assertNotNull(createdUser);
         assertEquals("New User", createdUser.getName());
+        assertTrue(passwordHashingService.matches("newpassword", createdUser.getPassword()));
         verify(userRepository, times(1)).save(user);
+        assertEquals(List.of(UserChangedEvent.created(UserSnapshot.from(user))), events);
+    }
+
+    @Test
+    void testIsEmailRegisteredSkipsDatabaseWhenIndexRulesItOut() {
+        // Arrange
+        when(userRepository.streamAllEmails()).thenReturn(java.util.stream.Stream.of("known@example.com"));
+        emailIndex.rebuild();
+
+        // Act
+        boolean registered = userService.isEmailRegistered("unknown@example.com");
+
+        // Assert
+        assertFalse(registered);
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void testAuthenticateIgnoresIndexForEmailsRegisteredElsewhere() {
+        // Arrange: el índice se construyó antes de que otra instancia registrara al usuario
+        when(userRepository.streamAllEmails()).thenReturn(java.util.stream.Stream.of("known@example.com"));
+        emailIndex.rebuild();
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("elsewhere@example.com");
+        user.setPassword(passwordHashingService.hash("secret123"));
+        when(userRepository.findByEmail("elsewhere@example.com")).thenReturn(Optional.of(user));
+
+        // Act
+        Optional<User> found = userService.findByEmail("elsewhere@example.com");
+        Optional<User> authenticated = userService.authenticate("elsewhere@example.com", "secret123");
+
+        // Assert
+        assertEquals(Optional.of(user), found);
+        assertEquals(Optional.of(user), authenticated);
     }
 
     @Test
@@ -135,6 +223,74 @@ class UserServiceTest {
         verify(userRepository, times(1)).save(existingUser);
     }
 
+    @Test
+    void testUpdateUserRejectsStaleVersion() {
+        // Arrange
+        User existingUser = new User();
+        existingUser.setId(1L);
+        existingUser.setVersion(3L);
+        User updatedUser = new User();
+        updatedUser.setName("Updated User");
+        updatedUser.setVersion(2L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> userService.updateUser(1L, updatedUser));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testPatchUserUpdatesOnlyPresentFields() {
+        // Arrange
+        User cached = new User();
+        cached.setId(1L);
+        cached.setName("Old Name");
+        cached.setEmail("user@example.com");
+        cached.setVersion(4L);
+        User updated = new User();
+        updated.setId(1L);
+        updated.setName("Old Name");
+        updated.setEmail("user@example.com");
+        updated.setTelefono("555-1234");
+        updated.setVersion(5L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(cached), Optional.of(updated));
+        when(userRepository.patch(1L, 4L, Map.of("telefono", "555-1234"))).thenReturn(1);
+        userService.getUserById(1L);
+
+        // Act
+        Optional<User> result = userService.patchUser(1L, new UserPatchRequest(null, null, null, null, "555-1234", 4L));
+
+        // Assert
+        assertEquals(Optional.of(updated), result);
+        verify(userRepository, never()).save(any(User.class));
+        assertEquals(List.of(UserChangedEvent.updated(UserSnapshot.from(cached), UserSnapshot.from(updated))), events);
+    }
+
+    @Test
+    void testPatchUserVersionConflict() {
+        // Arrange
+        when(userRepository.patch(1L, 4L, Map.of("name", "New Name"))).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> userService.patchUser(1L, new UserPatchRequest("New Name", null, null, null, null, 4L)));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testPatchUserNotFound() {
+        // Arrange
+        when(userRepository.patch(1L, null, Map.of("name", "New Name"))).thenReturn(0);
+
+        // Act
+        Optional<User> result = userService.patchUser(1L, new UserPatchRequest("New Name", null, null, null, null, null));
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
     @Test
     void testUpdateUserWhenUserDoesNotExist() {
         // Arrange
@@ -152,6 +308,86 @@ class UserServiceTest {
         verify(userRepository, never()).save(any(User.class));
     }
 
+    @Test
+    void testGetUserByIdIsCached() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        // Act
+        userService.getUserById(1L);
+        userService.getUserById(1L);
+
+        // Assert
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testUpdateUserInvalidatesCache() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        user.setName("Old Name");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.save(user)).thenReturn(user);
+        userService.getUserById(1L);
+
+        User updatedUser = new User();
+        updatedUser.setName("New Name");
+
+        // Act
+        userService.updateUser(1L, updatedUser);
+        userService.getUserById(1L);
+
+        // Assert
+        // Una lectura para llenar la caché, otra en updateUser y otra tras la invalidación
+        verify(userRepository, times(3)).findById(1L);
+    }
+
+    @Test
+    void testUpdateUserKeepsUnchangedHash() {
+        // Arrange
+        String hash = passwordHashingService.hash("password");
+        User existingUser = new User();
+        existingUser.setId(1L);
+        existingUser.setPassword(hash);
+
+        User updatedUser = new User();
+        updatedUser.setName("Updated User");
+        updatedUser.setPassword(hash);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
+        when(userRepository.save(existingUser)).thenReturn(existingUser);
+
+        // Act
+        User result = userService.updateUser(1L, updatedUser);
+
+        // Assert
+        assertEquals(hash, result.getPassword());
+    }
+
+    @Test
+    void testAuthenticateRehashesWeakerHash() {
+        // Arrange
+        PasswordHashingService cheaper = new PasswordHashingService(4, 1, 10, new SimpleMeterRegistry());
+        PasswordHashingService stronger = new PasswordHashingService(5, 1, 10, new SimpleMeterRegistry());
+        UserService service = new UserService(userRepository, new UserCache(userRepository, 100, Duration.ofMinutes(1)),
+                emailIndex, stronger, events::add);
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("user1@example.com");
+        user.setPassword(cheaper.hash("password1"));
+        when(userRepository.findByEmail("user1@example.com")).thenReturn(Optional.of(user));
+
+        // Act
+        Optional<User> result = service.authenticate("user1@example.com", "password1");
+
+        // Assert
+        assertTrue(result.isPresent());
+        verify(userRepository).updatePassword(eq(1L), startsWith("$2a$05$"));
+    }
+
     @Test
     void testDeleteUser() {
         // Act
@@ -160,4 +396,19 @@ class UserServiceTest {
         // Assert
         verify(userRepository, times(1)).deleteById(1L);
     }
+
+    @Test
+    void testDeleteUserPublishesEvent() {
+        // Arrange
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("user1@example.com");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        // Act
+        userService.deleteUser(1L);
+
+        // Assert
+        assertEquals(List.of(UserChangedEvent.deleted(UserSnapshot.from(user))), events);
+    }
 }
@@ -0,0 +1,224 @@
+package com.example.usermicroservice.service;
+
+import com.example.usermicroservice.dto.UserStats;
+import com.example.usermicroservice.repository.ReadRouting;
+import com.example.usermicroservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserStatisticsTest {
+
+    // 2024-03-10 12:30 en UTC
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 10, 12, 30);
+
+    private UserRepository userRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private UserStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        statistics = new UserStatistics(userRepository, mock(PlatformTransactionManager.class), meterRegistry,
+                true, 7, clock);
+    }
+
+    @Test
+    void testSnapshotIsEmptyBeforeBuild() {
+        assertTrue(statistics.snapshot().isEmpty());
+    }
+
+    @Test
+    void testBuildCountsUsersRolesAndRecentSignups() {
+        // Arrange: un alta de hace un mes queda fuera de la retención de 7 días
+        when(userRepository.streamSnapshots()).thenReturn(Stream.of(
+                snapshot(1L, "USER", NOW.minusMonths(1)),
+                snapshot(2L, "USER", NOW.minusDays(1)),
+                snapshot(3L, "ADMIN", NOW.minusMinutes(10)),
+                snapshot(4L, null, NOW.minusMinutes(5))));
+
+        // Act
+        statistics.refresh();
+
+        // Assert
+        UserStats stats = statistics.snapshot().orElseThrow();
+        assertEquals(4, stats.total());
+        assertEquals(Map.of("USER", 2L, "ADMIN", 1L, "NONE", 1L), stats.byRole());
+        assertEquals(Map.of(LocalDate.of(2024, 3, 9), 1L, LocalDate.of(2024, 3, 10), 2L), stats.signupsPerDay());
+        assertEquals(Map.of(LocalDateTime.of(2024, 3, 9, 12, 0), 1L, LocalDateTime.of(2024, 3, 10, 12, 0), 2L),
+                stats.signupsPerHour());
+        assertNull(stats.reconciledAt());
+    }
+
+    @Test
+    void testEventsUpdateCountersIncrementally() {
+        // Arrange
+        when(userRepository.streamSnapshots()).thenReturn(Stream.of(snapshot(1L, "USER", NOW.minusHours(1))));
+        statistics.refresh();
+        UserSnapshot created = snapshot(2L, "USER", NOW);
+        UserSnapshot promoted = snapshot(2L, "ADMIN", NOW);
+
+        // Act
+        statistics.onUserChanged(UserChangedEvent.created(created));
+        statistics.onUserChanged(UserChangedEvent.updated(created, promoted));
+        statistics.onUserChanged(UserChangedEvent.deleted(snapshot(1L, "USER", NOW.minusHours(1))));
+
+        // Assert
+        UserStats stats = statistics.snapshot().orElseThrow();
+        assertEquals(1, stats.total());
+        assertEquals(Map.of("ADMIN", 1L), stats.byRole());
+        assertEquals(Map.of(LocalDateTime.of(2024, 3, 10, 12, 0), 1L), stats.signupsPerHour());
+        verify(userRepository, times(1)).streamSnapshots();
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        // Arrange: otra instancia dio de alta un administrador que esta no vio
+        when(userRepository.streamSnapshots()).thenReturn(Stream.of(snapshot(1L, "USER", NOW.minusHours(1))));
+        statistics.refresh();
+        when(userRepository.countByRole()).thenReturn(List.of(roleCount("USER", 1), roleCount("ADMIN", 1)));
+        when(userRepository.countSignupsPerHourSince(any())).thenReturn(List.of(
+                hourCount(LocalDateTime.of(2024, 3, 10, 11, 0), 1),
+                hourCount(LocalDateTime.of(2024, 3, 10, 12, 0), 1)));
+
+        // Act
+        statistics.refresh();
+
+        // Assert
+        UserStats stats = statistics.snapshot().orElseThrow();
+        assertEquals(2, stats.total());
+        assertEquals(Map.of("USER", 1L, "ADMIN", 1L), stats.byRole());
+        assertEquals(Map.of(LocalDateTime.of(2024, 3, 10, 11, 0), 1L, LocalDateTime.of(2024, 3, 10, 12, 0), 1L),
+                stats.signupsPerHour());
+        assertEquals(NOW.toInstant(ZoneOffset.UTC), stats.reconciledAt());
+        assertEquals(1, meterRegistry.get("users.stats.drift").counter().count());
+        verify(userRepository).countSignupsPerHourSince(LocalDateTime.of(2024, 3, 4, 0, 0));
+    }
+
+    @Test
+    void testReconcileWithoutDriftChangesNothing() {
+        // Arrange
+        when(userRepository.streamSnapshots()).thenReturn(Stream.of(snapshot(1L, "USER", NOW.minusHours(1))));
+        statistics.refresh();
+        when(userRepository.countByRole()).thenReturn(List.of(roleCount("USER", 1)));
+        when(userRepository.countSignupsPerHourSince(any()))
+                .thenReturn(List.of(hourCount(LocalDateTime.of(2024, 3, 10, 11, 0), 1)));
+
+        // Act
+        statistics.refresh();
+
+        // Assert
+        assertEquals(1, statistics.snapshot().orElseThrow().total());
+        assertEquals(0, meterRegistry.get("users.stats.drift").counter().count());
+    }
+
+    @Test
+    void testReconcileIsPostponedWhenWritesInterleave() {
+        // Arrange: un alta llega mientras se consultan los recuentos
+        when(userRepository.streamSnapshots()).thenReturn(Stream.of(snapshot(1L, "USER", NOW.minusHours(1))));
+        statistics.refresh();
+        when(userRepository.countByRole()).thenAnswer(invocation -> {
+            statistics.onUserChanged(UserChangedEvent.created(snapshot(2L, "USER", NOW)));
+            return List.of(roleCount("USER", 5));
+        });
+        when(userRepository.countSignupsPerHourSince(any())).thenReturn(List.of());
+
+        // Act
+        statistics.refresh();
+
+        // Assert: los contadores siguen las escrituras y no se toman los recuentos como desviación
+        UserStats stats = statistics.snapshot().orElseThrow();
+        assertEquals(2, stats.total());
+        assertNull(stats.reconciledAt());
+        assertEquals(0, meterRegistry.get("users.stats.drift").counter().count());
+    }
+
+    @Test
+    void testBuildReadsFromPrimary() {
+        // Arrange: la réplica puede ir por detrás; la base de los contadores se lee del primario
+        AtomicBoolean onPrimary = new AtomicBoolean();
+        when(userRepository.streamSnapshots()).thenAnswer(invocation -> {
+            onPrimary.set(ReadRouting.readsFromPrimary());
+            return Stream.of(snapshot(1L, "USER", NOW.minusHours(1)));
+        });
+
+        // Act
+        statistics.refresh();
+
+        // Assert
+        assertTrue(onPrimary.get());
+        assertFalse(ReadRouting.readsFromPrimary());
+    }
+
+    @Test
+    void testBuildFailureLeavesStatisticsUnavailable() {
+        when(userRepository.streamSnapshots()).thenThrow(new IllegalStateException("base de datos caída"));
+
+        statistics.refresh();
+
+        assertTrue(statistics.snapshot().isEmpty());
+    }
+
+    private static UserSnapshot snapshot(Long id, String role, LocalDateTime createdAt) {
+        return new UserSnapshot(id, "Usuario " + id, "u" + id + "@example.com", role, createdAt);
+    }
+
+    private static UserRepository.HourCount hourCount(LocalDateTime hour, long total) {
+        return new UserRepository.HourCount() {
+            @Override
+            public int getYear() {
+                return hour.getYear();
+            }
+
+            @Override
+            public int getMonth() {
+                return hour.getMonthValue();
+            }
+
+            @Override
+            public int getDay() {
+                return hour.getDayOfMonth();
+            }
+
+            @Override
+            public int getHour() {
+                return hour.getHour();
+            }
+
+            @Override
+            public long getTotal() {
+                return total;
+            }
+        };
+    }
+
+    private static UserRepository.RoleCount roleCount(String role, long total) {
+        return new UserRepository.RoleCount() {
+            @Override
+            public String getRole() {
+                return role;
+            }
+
+            @Override
+            public long getTotal() {
+                return total;
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.usermicroservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserTableVersionTest {
+
+    @Test
+    void testTagChangesOnWritesAndAfterMaxStaleness() {
+        // Arrange
+        AtomicLong now = new AtomicLong(10_000);
+        UserTableVersion version = new UserTableVersion(Duration.ofSeconds(30), now::get);
+        String initial = version.tag();
+
+        // Act
+        String sameWindow = version.tag();
+        version.onUserChanged(UserChangedEvent.created(new UserSnapshot(1L, "John", "john@example.com", "USER", null)));
+        String afterWrite = version.tag();
+        now.addAndGet(30_000);
+        String afterWindow = version.tag();
+
+        // Assert
+        assertEquals(initial, sameWindow);
+        assertNotEquals(initial, afterWrite);
+        assertNotEquals(afterWrite, afterWindow);
+    }
+
+    @Test
+    void testTagsDifferBetweenInstances() {
+        // Los contadores de dos arranques empiezan en 0, pero sus etiquetas no coinciden
+        assertNotEquals(new UserTableVersion(Duration.ofMinutes(1)).tag(), new UserTableVersion(Duration.ofMinutes(1)).tag());
+    }
+}